@@ -0,0 +1,163 @@
+package assignment;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimal measurement loop for the benchmarks in this folder, standing in for JMH since the project has no
+ * dependency management to pull it in
+ *
+ * Each benchmark runs warm-up iterations first, then measured iterations of at least minTime nanoseconds each.
+ * Reported per operation: throughput, mean latency, p99 latency, bytes allocated by the benchmark thread (the
+ * equivalent of JMH's gc profiler gc.alloc.rate.norm), the allocation rate and the GC runs seen.
+ *
+ * The p99 is taken over every measured call of the operation, each timed on its own and divided by the operations
+ * it performed, so it is as fine as the operation's calls are: per build for a build, per batch of draws for a batch.
+ * Calls are counted in a log-linear histogram allocated up front, so recording them allocates nothing and a value
+ * is off by at most 1/16 of itself; the upper bound of its bucket is reported.
+ */
+public class BenchmarkRunner {
+    //buckets per power of two in the latency histogram, values below it are counted exactly
+    private static final int SUB_BUCKETS = 16;
+
+    //latencies are counted in steps of 1/UNITS_PER_NANO nanoseconds, so operations of a few nanoseconds still resolve
+    private static final int UNITS_PER_NANO = 16;
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long minTime;
+    private final String filter;
+    private final long[] histogram = new long[64 * SUB_BUCKETS];
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Code under measurement, returning how many operations one call performed
+     */
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    /**
+     * @param warmupIterations   int representing the amount of iterations thrown away before measuring
+     * @param measuredIterations int representing the amount of measured iterations
+     * @param minTimeMillis      long representing the minimum length of one iteration in milliseconds
+     * @param filter             String that benchmark names must contain to run, empty to run everything
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations, long minTimeMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.minTime = minTimeMillis * 1_000_000L;
+        this.filter = filter;
+    }
+
+    /**
+     * Print the column headers of the report
+     */
+    public void printHeader() {
+        System.out.printf(Locale.ROOT, "%-36s %-22s %14s %12s %12s %12s %10s %6s%n",
+                "benchmark", "params", "ops/s", "ns/op", "p99 ns/op", "B/op", "MB/s alloc", "gc");
+    }
+
+    /**
+     * Measure an operation and print one line of the report, unless the filter excludes it
+     *
+     * @param name      String representing the benchmark name
+     * @param params    String describing the parameters of this run
+     * @param operation Operation to measure
+     */
+    public void run(String name, String params, Operation operation) throws Exception {
+        if (!(name + " " + params).contains(filter)) {
+            return;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, false);
+        }
+
+        Arrays.fill(histogram, 0);
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long gcBefore = gcCount();
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] result = iteration(operation, true);
+            totalOps += result[0];
+            totalNanos += result[1];
+            totalBytes += result[2];
+        }
+        long gcRuns = gcCount() - gcBefore;
+
+        double p99 = percentile(0.99);
+        System.out.printf(Locale.ROOT, "%-36s %-22s %14.1f %12.1f %12.1f %12.1f %10.1f %6d%n",
+                name, params, totalOps * 1e9 / totalNanos, (double) totalNanos / totalOps, p99,
+                (double) totalBytes / totalOps, totalBytes / 1e6 / (totalNanos / 1e9), gcRuns);
+    }
+
+    //repeat the operation until minTime has passed, returning {operations, nanoseconds, bytes allocated}
+    private long[] iteration(Operation operation, boolean measured) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long ops = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long callStart = start;
+        long elapsed;
+        do {
+            long count = operation.run();
+            long now = System.nanoTime();
+            if (measured) {
+                record((double) (now - callStart) / Math.max(1, count));
+            }
+            ops += count;
+            callStart = now;
+            elapsed = now - start;
+        } while (elapsed < minTime);
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        return new long[]{ops, elapsed, bytes};
+    }
+
+    //count one call's nanoseconds per operation in its bucket: exact below SUB_BUCKETS units, above it the bucket
+    //of the top 5 bits of the value
+    private void record(double nanosPerOp) {
+        long units = Math.max(0, (long) Math.ceil(nanosPerOp * UNITS_PER_NANO));
+        if (units < SUB_BUCKETS) {
+            histogram[(int) units]++;
+            return;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        int shift = exponent - Integer.numberOfTrailingZeros(SUB_BUCKETS);
+        histogram[shift * SUB_BUCKETS + (int) (units >>> shift)]++;
+    }
+
+    //the upper bound in nanoseconds of the bucket holding the given fraction of all recorded calls
+    private double percentile(double fraction) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int index = 0; index < histogram.length; index++) {
+            seen += histogram[index];
+            if (seen >= rank) {
+                if (index < SUB_BUCKETS) {
+                    return (double) index / UNITS_PER_NANO;
+                }
+                int shift = index / SUB_BUCKETS - 1;
+                long upper = ((long) (index % SUB_BUCKETS + SUB_BUCKETS + 1) << shift) - 1;
+                return (double) upper / UNITS_PER_NANO;
+            }
+        }
+        return 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
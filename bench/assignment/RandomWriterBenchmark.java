@@ -0,0 +1,237 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the phases of RandomWriter separately: readText, createFrequency, getRandomChar, generateText and
+ * writeText, over every non-empty book in test_books plus a synthetic corpus of several megabytes, for several k
+ *
+ * Run from the project root:
+ * javac -d out src/assignment/*.java bench/assignment/*.java
+ * java -cp out assignment.RandomWriterBenchmark [--quick] [--filter=text]
+ *
+ * --quick shortens the iterations for a smoke run, --filter only runs benchmarks whose name and parameters
+ * contain the text (for example --filter=generateText or --filter="k=5").
+ */
+public class RandomWriterBenchmark {
+    static final int[] LEVELS = {1, 3, 5, 8};
+    static final int DRAWS = 1024;
+    static final int OUTPUT_LENGTH = 1 << 20;
+    static final int SHORT_LENGTH = 1000;
+
+    //random algorithms compared by getRandomChar.rng and generateText.rng, java.util.Random as the locked baseline
+    static final String[] ALGORITHMS = {"SplittableRandom", "L64X128MixRandom", "Xoshiro256PlusPlus", "Random"};
+
+    //written to by benchmarks so the JIT cannot drop the work
+    static long sink;
+
+    public static void main(String[] args) throws Exception {
+        boolean quick = false;
+        String filter = "";
+        for (String arg : args) {
+            if (arg.equals("--quick")) {
+                quick = true;
+            } else if (arg.startsWith("--filter=")) {
+                filter = arg.substring("--filter=".length());
+            }
+        }
+
+        BenchmarkRunner runner = quick ? new BenchmarkRunner(1, 3, 100, filter) : new BenchmarkRunner(3, 10, 1000, filter);
+        Path tempDir = Files.createTempDirectory("randomwriter-bench");
+        List<Path> corpora = corpora(tempDir, quick ? 1 << 20 : 8 << 20);
+
+        runner.printHeader();
+        for (Path corpus : corpora) {
+            benchmarkCorpus(runner, corpus, tempDir);
+        }
+    }
+
+    static void benchmarkCorpus(BenchmarkRunner runner, Path corpus, Path tempDir) throws Exception {
+        String name = corpus.getFileName().toString();
+        String text = Files.readString(corpus);
+
+        runner.run("readText", name, () -> {
+            RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+            randomWriter.readText(corpus.toString());
+            return 1;
+        });
+
+        for (int k : LEVELS) {
+            if (text.length() <= k) {
+                continue;
+            }
+            String params = name + " k=" + k;
+            RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(k);
+
+            runner.run("createFrequency", params, () -> {
+                randomWriter.createFrequency(text, k);
+                return 1;
+            });
+
+            randomWriter.createFrequency(text, k);
+            randomWriter.freezeModel();
+            FrequencyModel model = randomWriter.getFrequencyModel();
+            int[] seedIds = randomSeeds(model);
+
+            runner.run("getRandomChar", params, () -> {
+                for (int seedId : seedIds) {
+                    sink += randomWriter.getRandomChar(seedId);
+                }
+                return DRAWS;
+            });
+
+            //the HashMap sampler the model replaced, as a baseline
+            HashMap<String, HashMap<Character, Integer>> frequencyMap = model.toFrequencyMap();
+            List<HashMap<Character, Integer>> charMaps = new ArrayList<>();
+            for (int seedId : seedIds) {
+                charMaps.add(frequencyMap.get(model.getSeed(seedId)));
+            }
+            runner.run("getRandomChar.hashMap", params, () -> {
+                for (HashMap<Character, Integer> charMap : charMaps) {
+                    sink += randomWriter.getRandomChar(charMap);
+                }
+                return DRAWS;
+            });
+
+            runner.run("generateText", params, () -> {
+                RandomWriter generating = (RandomWriter) RandomWriter.createProcessor(k);
+                generating.setFrequencyModel(model);
+                generating.generateText(OUTPUT_LENGTH);
+                return OUTPUT_LENGTH;
+            });
+
+            //the same generation from every other backend, in chars/s (ops/s) and bytes allocated per char (B/op)
+            //FidelityTest checks that each of them draws with the counts of the source
+            Path modelFile = tempDir.resolve("model.bin");
+            ModelFile.save((CompactFrequencyModel) model, modelFile);
+            Map<String, FrequencyModel> backends = new LinkedHashMap<>();
+            backends.put("offHeap", OffHeapFrequencyModel.of((CompactFrequencyModel) model));
+            backends.put("modelFile", ModelFile.load(modelFile));
+            backends.put("sharded", ShardedFrequencyModel.build(text, k, 4).freeze());
+            backends.put("lazy", new LazyFrequencyModel(text, k, LazyFrequencyModel.DEFAULT_CACHE_SIZE));
+            for (Map.Entry<String, FrequencyModel> backend : backends.entrySet()) {
+                runner.run("generateText." + backend.getKey(), params, () -> {
+                    RandomWriter generating = (RandomWriter) RandomWriter.createProcessor(k);
+                    generating.setFrequencyModel(backend.getValue());
+                    generating.generateText(OUTPUT_LENGTH);
+                    return OUTPUT_LENGTH;
+                });
+            }
+            ((OffHeapFrequencyModel) backends.get("offHeap")).close();
+
+            //time to a short output from scratch, counting every seed up front or only the seeds generation reaches
+            for (boolean lazy : new boolean[]{false, true}) {
+                runner.run(lazy ? "shortText.lazy" : "shortText", params, () -> {
+                    RandomWriter generating = (RandomWriter) RandomWriter.createProcessor(k);
+                    generating.setLazy(lazy ? LazyFrequencyModel.DEFAULT_CACHE_SIZE : 0);
+                    generating.createFrequency(text, k);
+                    generating.freezeModel();
+                    generating.generateText(SHORT_LENGTH);
+                    return 1;
+                });
+            }
+
+            //the cost of one draw for every random algorithm, alone and inside the generation loop
+            for (String algorithm : ALGORITHMS) {
+                RandomWriter drawing = (RandomWriter) RandomWriter.createProcessor(k, 1);
+                drawing.setRandomAlgorithm(algorithm);
+                drawing.setFrequencyModel(model);
+                runner.run("getRandomChar.rng", params + " " + algorithm, () -> {
+                    for (int seedId : seedIds) {
+                        sink += drawing.getRandomChar(seedId);
+                    }
+                    return DRAWS;
+                });
+                runner.run("generateText.rng", params + " " + algorithm, () -> {
+                    RandomWriter generating = (RandomWriter) RandomWriter.createProcessor(k, 1);
+                    generating.setRandomAlgorithm(algorithm);
+                    generating.setFrequencyModel(model);
+                    generating.generateText(OUTPUT_LENGTH);
+                    return OUTPUT_LENGTH;
+                });
+            }
+
+            //the same generation with counts of every order up to k, backing off instead of reseeding
+            BackoffModel backoffModel = BackoffModel.build(text, k);
+            runner.run("generateText.backoff", params, () -> {
+                RandomWriter generating = (RandomWriter) RandomWriter.createProcessor(k);
+                generating.setFrequencyModel(backoffModel);
+                generating.generateText(OUTPUT_LENGTH);
+                return OUTPUT_LENGTH;
+            });
+
+            //single-byte corpora read, counted and written as bytes, from the source file to the output file
+            if (k <= ByteFrequencyModel.MAX_K && ByteFrequencyModel.isSingleByte(corpus, StandardCharsets.UTF_8)) {
+                runner.run("createFrequency.bytes", params, () -> {
+                    ByteFrequencyModel.build(corpus, k);
+                    return 1;
+                });
+                String byteOutput = tempDir.resolve("output-bytes.txt").toString();
+                runner.run("writeBytes", params, () -> {
+                    RandomWriter bytes = (RandomWriter) RandomWriter.createProcessor(k);
+                    bytes.writeBytes(corpus.toString(), byteOutput, k, OUTPUT_LENGTH);
+                    return OUTPUT_LENGTH;
+                });
+            }
+
+            RandomWriter writing = (RandomWriter) RandomWriter.createProcessor(k);
+            writing.setFrequencyModel(model);
+            writing.generateText(OUTPUT_LENGTH);
+            String output = tempDir.resolve("output.txt").toString();
+            runner.run("writeText", params, () -> {
+                writing.writeText(output, OUTPUT_LENGTH);
+                return OUTPUT_LENGTH;
+            });
+        }
+    }
+
+    //every non-empty book, then a synthetic text of random words with a skewed word distribution
+    static List<Path> corpora(Path tempDir, int syntheticLength) throws IOException {
+        List<Path> corpora;
+        try (Stream<Path> books = Files.list(Paths.get("test_books"))) {
+            corpora = books.filter(path -> path.toFile().length() > 0).sorted().collect(Collectors.toList());
+        }
+
+        SplittableRandom rand = new SplittableRandom(42);
+        String[] words = new String[5000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + rand.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + rand.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        StringBuilder synthetic = new StringBuilder(syntheticLength + 16);
+        while (synthetic.length() < syntheticLength) {
+            //squaring a uniform draw favors the first words, roughly like word frequencies in real text
+            double u = rand.nextDouble();
+            synthetic.append(words[(int) (u * u * words.length)]).append(rand.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        Path path = tempDir.resolve("synthetic-" + (syntheticLength >> 20) + "MB.txt");
+        Files.writeString(path, synthetic);
+        corpora.add(path);
+        return corpora;
+    }
+
+    static int[] randomSeeds(FrequencyModel model) {
+        SplittableRandom rand = new SplittableRandom(7);
+        int[] seedIds = new int[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            seedIds[i] = model.getRandomSeed(rand);
+        }
+        return seedIds;
+    }
+}
@@ -0,0 +1,241 @@
+package assignment;
+
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * FrequencyModel that keeps counts for every order from 0 to k and backs off to a shorter context instead of
+ * reseeding when generation reaches a context that is never followed by a character
+ *
+ * Every order is a frozen CompactFrequencyModel over one shared key buffer, so the text is stored once. A seed id of
+ * this model stands for a seed of one order: ids of order 0 come first, then those of order 1 and so on, so the
+ * seeds of order k, the ones getSeedId() and getRandomSeed() return, have the highest ids.
+ *
+ * getTransition() never returns -1. After a character it moves to the longest known context, looking at most one
+ * order higher than the current one:
+ * - below order k, the seed extended by the character, if that is a seed of the next order (one table read)
+ * - otherwise the seed without its first character plus the new character in the same order (one table read)
+ * - if that is unknown too, the same step one order lower, down to order 0, whose single seed is always known
+ * The extension and back-off tables are built once, so a step that does not back off costs two array reads more
+ * than a step of a single-order model, and a step that does back off costs at most k binary searches.
+ */
+public class BackoffModel implements FrequencyModel {
+    private final int k;
+    private final CompactFrequencyModel[] models;
+
+    //first seed id of every order, plus the total amount of seeds at the end
+    private final int[] base;
+
+    //for order j < k and every (seed, follower) pair, the id of the seed plus follower in order j + 1, or -1
+    private final int[][] extension;
+
+    //for order j > 0 and every seed, the id of the seed without its first character in order j - 1
+    private final int[][] shorter;
+
+    private BackoffModel(int k, CompactFrequencyModel[] models, int[][] extension, int[][] shorter) {
+        this.k = k;
+        this.models = models;
+        this.extension = extension;
+        this.shorter = shorter;
+        this.base = new int[k + 2];
+        for (int order = 0; order <= k; order++) {
+            base[order + 1] = base[order] + models[order].getSeedCount();
+        }
+    }
+
+    /**
+     * Build the frozen models of every order from 0 to k over source and link them
+     *
+     * @param source String representing the input text
+     * @param k      int representing the highest level of analysis
+     * @return BackoffModel built from source
+     */
+    public static BackoffModel build(String source, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be at least 0.");
+        }
+        char[] text = source.toCharArray();
+        CharBuffer textView = CharBuffer.wrap(text);
+        CompactFrequencyModel[] models = new CompactFrequencyModel[k + 1];
+        for (int order = 0; order <= k; order++) {
+            CompactFrequencyModel.Builder builder = new CompactFrequencyModel.Builder(text, order);
+            builder.addRange(0, Math.max(0, text.length - order));
+            models[order] = builder.build().freeze();
+        }
+
+        //every seed of order j is followed by a character somewhere, so its last j - 1 characters are a seed of j - 1
+        int[][] shorter = new int[k + 1][];
+        for (int order = 1; order <= k; order++) {
+            CompactFrequencyModel model = models[order];
+            shorter[order] = new int[model.getSeedCount()];
+            for (int seedId = 0; seedId < shorter[order].length; seedId++) {
+                shorter[order][seedId] = models[order - 1].getSeedId(textView, model.seedOffset[seedId] + 1);
+            }
+        }
+
+        int[][] extension = new int[k][];
+        char[] context = new char[k];
+        CharBuffer contextView = CharBuffer.wrap(context);
+        for (int order = 0; order < k; order++) {
+            CompactFrequencyModel model = models[order];
+            extension[order] = new int[model.followers.length];
+            for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+                System.arraycopy(text, model.seedOffset[seedId], context, 0, order);
+                for (int i = model.followerStart[seedId]; i < model.followerStart[seedId + 1]; i++) {
+                    context[order] = model.followers[i];
+                    extension[order][i] = models[order + 1].getSeedId(contextView, 0);
+                }
+            }
+        }
+        return new BackoffModel(k, models, extension, shorter);
+    }
+
+    /**
+     * @param order int representing a level of analysis from 0 to k
+     * @return CompactFrequencyModel that is frozen and holds the counts of that order
+     */
+    public CompactFrequencyModel getModel(int order) {
+        return models[order];
+    }
+
+    /**
+     * @param seedId int representing a seed id of this model
+     * @return int representing the order of the seed, which is also its length
+     */
+    public int getOrder(int seedId) {
+        //most steps stay in the highest order, so the search starts there
+        int order = k;
+        while (seedId < base[order]) {
+            order--;
+        }
+        return order;
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return base[k + 1];
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        int seedId = models[k].getSeedId(text, offset);
+        return seedId == -1 ? -1 : base[k] + seedId;
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        int order = getOrder(seedId);
+        return models[order].getSeed(seedId - base[order]);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        int order = getOrder(seedId);
+        return models[order].getFollowerCount(seedId - base[order]);
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        int order = getOrder(seedId);
+        return models[order].getFollower(seedId - base[order], index);
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        int order = getOrder(seedId);
+        return models[order].getFrequency(seedId - base[order], index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        int order = getOrder(seedId);
+        return models[order].getTotalFrequency(seedId - base[order]);
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int order = getOrder(seedId);
+        return models[order].sample(seedId - base[order], rand);
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        int order = getOrder(seedId);
+        int local = seedId - base[order];
+        CompactFrequencyModel model = models[order];
+        int pair = model.followerStart[local] + index;
+
+        //climb one order if the longer context is known
+        if (order < k && extension[order][pair] != -1) {
+            return base[order + 1] + extension[order][pair];
+        }
+
+        //otherwise stay in this order, backing off one order at a time while the context is unknown
+        int next = model.transitions[pair];
+        char follower = model.followers[pair];
+        while (next == -1) {
+            local = shorter[order][local];
+            order--;
+            model = models[order];
+            next = model.transitions[followerPair(model, local, follower)];
+        }
+        return base[order] + next;
+    }
+
+    /**
+     * Retrieve a random seed of order k, weighted by occurrence, or of the highest order that has seeds if the
+     * source is too short for order k
+     */
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        for (int order = k; order >= 0; order--) {
+            int seedId = models[order].getRandomSeed(rand);
+            if (seedId != -1) {
+                return base[order] + seedId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return HashMap of the seeds of order k, structured as {seed: {character: frequency}}
+     */
+    @Override
+    public HashMap<String, HashMap<Character, Integer>> toFrequencyMap() {
+        return models[k].toFrequencyMap();
+    }
+
+    /**
+     * @return long representing the approximate amount of heap in bytes held by the model, including the key buffer
+     */
+    public long estimatedBytes() {
+        long bytes = 2L * models[0].keys.length;
+        for (int order = 0; order <= k; order++) {
+            bytes += models[order].estimatedBytes() - 2L * models[order].keys.length;
+            bytes += order < k ? 4L * extension[order].length : 0;
+            bytes += order > 0 ? 4L * shorter[order].length : 0;
+        }
+        return bytes;
+    }
+
+    //index into the pair arrays of the follower of a seed, which is known to follow it
+    private static int followerPair(CompactFrequencyModel model, int seedId, char follower) {
+        int low = model.followerStart[seedId];
+        int high = model.followerStart[seedId + 1] - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (model.followers[mid] < follower) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
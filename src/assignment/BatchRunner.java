@@ -0,0 +1,305 @@
+package assignment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many generation jobs in one JVM, building each model once and reusing it for every job on the same source
+ *
+ * Jobs are read one per line from a manifest file, or from standard input when the manifest is "-" or missing,
+ * in the same form as the arguments of RandomWriter: source, output, k and length separated by whitespace. Blank
+ * lines and lines starting with # are skipped. Built models are kept frozen in a bounded LRU cache keyed by the
+ * source path, k and the modification time of the source, so a source that changes on disk is built again.
+ *
+ * Jobs run on a virtual thread per job when the JVM has them (Java 21 and later) and on a fixed pool of one thread
+ * per processor otherwise. At most maxJobs jobs are in flight: reading the manifest waits for a free slot, so a
+ * long queue never piles up in memory.
+ *
+ * Usage: java assignment.BatchRunner [manifest] [--cache=N] [--jobs=N] [--charset=name]
+ */
+public class BatchRunner {
+    static final int DEFAULT_CACHE_SIZE = 8;
+
+    private final ModelCache cache;
+    private final Semaphore slots;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param cacheSize int representing the amount of models kept built at once
+     * @param maxJobs   int representing the amount of jobs that may be queued or running at once
+     * @param charset   Charset every source file is decoded with
+     */
+    public BatchRunner(int cacheSize, int maxJobs, Charset charset) {
+        if (cacheSize < 1 || maxJobs < 1) {
+            throw new IllegalArgumentException("Cache size and job count must be at least 1.");
+        }
+        this.cache = new ModelCache(cacheSize, charset);
+        this.slots = new Semaphore(maxJobs);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String manifest = "-";
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        int maxJobs = 4 * Runtime.getRuntime().availableProcessors();
+        Charset charset = StandardCharsets.UTF_8;
+
+        //if the value of a numeric option cannot be parsed, throw an error
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--cache=")) {
+                    cacheSize = Integer.parseInt(arg.substring("--cache=".length()));
+                } else if (arg.startsWith("--jobs=")) {
+                    maxJobs = Integer.parseInt(arg.substring("--jobs=".length()));
+                } else if (arg.startsWith("--charset=")) {
+                    charset = Charset.forName(arg.substring("--charset=".length()));
+                } else if (arg.startsWith("--")) {
+                    System.err.println("Unknown option " + arg + " ignored.");
+                } else {
+                    manifest = arg;
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Cache size or job count not an integer.");
+            throw new IllegalArgumentException();
+        }
+
+        BatchRunner runner = new BatchRunner(cacheSize, maxJobs, charset);
+        try (BufferedReader jobs = manifest.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(manifest), StandardCharsets.UTF_8)) {
+            runner.run(jobs);
+        }
+        System.out.println(runner.getCompleted() + " jobs completed, " + runner.getFailed() + " failed.");
+    }
+
+    /**
+     * Run every job read from jobs and wait until all of them have finished
+     * A job that fails is reported on System.err and counted, the other jobs keep running
+     *
+     * @param jobs BufferedReader of job lines
+     */
+    public void run(BufferedReader jobs) throws IOException, InterruptedException {
+        ExecutorService executor = newExecutor();
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = jobs.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                //wait for a free slot before reading further, which keeps the queue bounded
+                slots.acquire();
+                String job = line;
+                int jobNumber = lineNumber;
+                executor.execute(() -> {
+                    try {
+                        runJob(job.split("\\s+"));
+                        completed.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Job on line " + jobNumber + " failed: " + e.getMessage());
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+    }
+
+    /**
+     * Generate the output of one job from the cached model of its source
+     *
+     * @param job String[] holding the source file name, output file name, k and length
+     */
+    void runJob(String[] job) throws IOException {
+        if (job.length != 4) {
+            throw new IllegalArgumentException("Expected source, output, k and length.");
+        }
+        int k;
+        int length;
+        try {
+            k = Integer.parseInt(job[2]);
+            length = Integer.parseInt(job[3]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("k or length not an integer.");
+        }
+        if (k < 0 || length < 0) {
+            throw new IllegalArgumentException("k or length is invalid.");
+        }
+
+        //the source must hold more than k characters, so the model has at least one seed
+        FrequencyModel model = cache.get(Paths.get(job[0]), k);
+        if (model.getSeedCount() == 0) {
+            throw new IllegalArgumentException("k or length is invalid.");
+        }
+
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(k);
+        randomWriter.setFrequencyModel(model);
+        randomWriter.streamText(job[1], length);
+    }
+
+    /**
+     * @return int representing the amount of jobs that finished without an error
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return int representing the amount of jobs that failed
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return ModelCache holding the models built for the jobs
+     */
+    ModelCache getCache() {
+        return cache;
+    }
+
+    //a virtual thread per job where the JVM supports them, found by reflection so the code still runs on Java 17
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Bounded LRU cache of frozen models, keyed by source path, k and modification time of the source
+     * A model is built by the first job that needs it; jobs asking for the same model meanwhile wait for that build
+     * instead of starting their own.
+     */
+    static class ModelCache {
+        private final int capacity;
+        private final Charset charset;
+        private final LinkedHashMap<Key, CompletableFuture<CompactFrequencyModel>> models;
+        private int builds;
+
+        ModelCache(int capacity, Charset charset) {
+            this.capacity = capacity;
+            this.charset = charset;
+
+            //access order makes iteration start at the least recently used model, which is evicted first
+            this.models = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<CompactFrequencyModel>> eldest) {
+                    return size() > ModelCache.this.capacity;
+                }
+            };
+        }
+
+        /**
+         * @param source Path of the source file
+         * @param k      int representing the level of analysis
+         * @return CompactFrequencyModel that is frozen, built from the current contents of source
+         */
+        CompactFrequencyModel get(Path source, int k) throws IOException {
+            Path path = source.toAbsolutePath().normalize();
+            Key key = new Key(path, k, Files.getLastModifiedTime(path).toMillis());
+
+            CompletableFuture<CompactFrequencyModel> model;
+            boolean owner = false;
+            synchronized (models) {
+                model = models.get(key);
+                if (model == null) {
+                    model = new CompletableFuture<>();
+                    models.put(key, model);
+                    builds++;
+                    owner = true;
+                }
+            }
+
+            //build outside the lock so jobs on other models are not held up
+            if (owner) {
+                try {
+                    model.complete(CompactFrequencyModel.build(path, charset, k).freeze());
+                } catch (IOException | RuntimeException e) {
+                    synchronized (models) {
+                        models.remove(key, model);
+                    }
+                    model.completeExceptionally(e);
+                }
+            }
+
+            try {
+                return model.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * @return int representing the amount of models held
+         */
+        int size() {
+            synchronized (models) {
+                return models.size();
+            }
+        }
+
+        /**
+         * @return int representing the amount of models built so far, including evicted ones
+         */
+        int getBuilds() {
+            synchronized (models) {
+                return builds;
+            }
+        }
+    }
+
+    private static final class Key {
+        private final Path path;
+        private final int k;
+        private final long modified;
+
+        Key(Path path, int k, long modified) {
+            this.path = path;
+            this.k = k;
+            this.modified = modified;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return path.equals(key.path) && k == key.k && modified == key.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, k, modified);
+        }
+    }
+}
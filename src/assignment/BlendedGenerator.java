@@ -0,0 +1,161 @@
+package assignment;
+
+import java.nio.CharBuffer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates text from several models of the same k at once, each with its own weight
+ *
+ * Every character is drawn from the mixture of the models that know the current context: one of them is picked
+ * with probability proportional to its weight among those models, then a follower is drawn from it as usual. The
+ * context is kept as the last k characters plus the seed id it has in each model, so the models never have to be
+ * merged and each can be any FrequencyModel, for example one memory-mapped model file per corpus.
+ *
+ * Like TextGenerator, a blended generator is meant for one thread while the models can be shared.
+ */
+public class BlendedGenerator {
+    private final FrequencyModel[] models;
+    private final double[] weights;
+    private final RandomGenerator rand;
+    private final int k;
+
+    //last k characters of the text and the id of that seed in every model, -1 where a model does not know it
+    private final char[] context;
+    private final CharBuffer contextView;
+    private final int[] seedIds;
+    private boolean started;
+    private int initialSeedIndex;
+
+    /**
+     * @param models  FrequencyModel[] built with the same k, usually frozen
+     * @param weights double[] holding a non-negative weight per model, not all zero
+     * @param rand    RandomGenerator used for every draw of this generator
+     */
+    public BlendedGenerator(FrequencyModel[] models, double[] weights, RandomGenerator rand) {
+        if (models.length == 0 || models.length != weights.length) {
+            throw new IllegalArgumentException("Every model needs exactly one weight.");
+        }
+        double total = 0;
+        for (int i = 0; i < models.length; i++) {
+            if (models[i].getK() != models[0].getK()) {
+                throw new IllegalArgumentException("Models of different k cannot be blended.");
+            }
+            if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative.");
+            }
+            total += weights[i];
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive.");
+        }
+
+        this.models = models.clone();
+        this.weights = weights.clone();
+        this.rand = rand;
+        this.k = models[0].getK();
+        this.context = new char[k];
+        this.contextView = CharBuffer.wrap(context);
+        this.seedIds = new int[models.length];
+    }
+
+    /**
+     * Generate the next characters of the text into buffer
+     * The text starts with a random seed of a model picked by weight, and whenever no model knows the current
+     * context a new seed is picked the same way without being output
+     *
+     * @param buffer char[] to write the characters into
+     * @param offset int representing the index of buffer to start writing at
+     * @param length int representing the amount of characters to generate
+     * @return int representing the amount of characters written, always length
+     */
+    public int fill(char[] buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+
+        //the first characters of the text are the initial seed itself
+        if (!started) {
+            reseed();
+            started = true;
+        }
+        while (initialSeedIndex < k && i < end) {
+            buffer[i++] = context[initialSeedIndex++];
+        }
+
+        while (i < end) {
+            int chosen = pick();
+            if (chosen == -1) {
+                reseed();
+                continue;
+            }
+
+            int seedId = seedIds[chosen];
+            int index = models[chosen].sample(seedId, rand);
+            char next = models[chosen].getFollower(seedId, index);
+            buffer[i++] = next;
+
+            //shift the character into the context and find the new seed in every model
+            if (k > 0) {
+                System.arraycopy(context, 1, context, 0, k - 1);
+                context[k - 1] = next;
+            }
+            for (int m = 0; m < models.length; m++) {
+                seedIds[m] = m == chosen ? models[m].getTransition(seedId, index) : models[m].getSeedId(contextView, 0);
+            }
+        }
+        return length;
+    }
+
+    //pick a model that knows the current context, with probability proportional to its weight, or -1 if none does
+    private int pick() {
+        double total = 0;
+        for (int m = 0; m < models.length; m++) {
+            if (seedIds[m] != -1) {
+                total += weights[m];
+            }
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        double randomWeight = rand.nextDouble() * total;
+        int last = -1;
+        for (int m = 0; m < models.length; m++) {
+            if (seedIds[m] != -1 && weights[m] > 0) {
+                last = m;
+                randomWeight -= weights[m];
+                if (randomWeight < 0) {
+                    return m;
+                }
+            }
+        }
+        //rounding can leave a tiny remainder, which belongs to the last model that could be picked
+        return last;
+    }
+
+    //take a random seed of a model picked by weight as the new context
+    private void reseed() {
+        double total = 0;
+        for (int m = 0; m < models.length; m++) {
+            if (models[m].getSeedCount() > 0) {
+                total += weights[m];
+            }
+        }
+        if (total == 0) {
+            throw new IllegalStateException("Models have no seeds to generate from.");
+        }
+
+        double randomWeight = rand.nextDouble() * total;
+        int chosen = -1;
+        for (int m = 0; m < models.length && randomWeight >= 0; m++) {
+            if (models[m].getSeedCount() > 0 && weights[m] > 0) {
+                chosen = m;
+                randomWeight -= weights[m];
+            }
+        }
+
+        models[chosen].getSeed(models[chosen].getRandomSeed(rand)).getChars(0, k, context, 0);
+        for (int m = 0; m < models.length; m++) {
+            seedIds[m] = models[m].getSeedId(contextView, 0);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package assignment;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Frozen FrequencyModel that reads every table straight out of a ByteBuffer in the ModelFile format, usually a
+ * memory-mapped model file
+ *
+ * Nothing is copied onto the heap: each section of the buffer is viewed as an IntBuffer or CharBuffer and read
+ * in place, so a model can be used as soon as the file is mapped and pages are only loaded when generation
+ * touches them. Lookups, sampling and transitions work like in a frozen CompactFrequencyModel.
+ */
+public class BufferFrequencyModel implements FrequencyModel {
+    private final ByteBuffer buffer;
+    private final int k;
+    private final long end;
+
+    private final IntBuffer seedOffset;
+    private final IntBuffer seedHash;
+    private final IntBuffer table;
+    private final IntBuffer followerStart;
+    private final IntBuffer counts;
+    private final IntBuffer cumulative;
+    private final IntBuffer transitions;
+    private final IntBuffer seedCumulative;
+    private final CharBuffer keys;
+    private final CharBuffer followers;
+    private final int seedCount;
+    private final int tableMask;
+
+    BufferFrequencyModel(ByteBuffer buffer, int k, int keyLength, int seeds, int tableLength, int pairs) {
+        this.buffer = buffer;
+        this.k = k;
+        this.seedCount = seeds;
+        this.tableMask = tableLength - 1;
+
+        //cut the buffer into its sections in the order ModelFile writes them
+        int position = ModelFile.HEADER_SIZE;
+        seedOffset = ints(position, seeds);
+        position += 4 * seeds;
+        seedHash = ints(position, seeds);
+        position += 4 * seeds;
+        table = ints(position, tableLength);
+        position += 4 * tableLength;
+        followerStart = ints(position, seeds + 1);
+        position += 4 * (seeds + 1);
+        counts = ints(position, pairs);
+        position += 4 * pairs;
+        cumulative = ints(position, pairs);
+        position += 4 * pairs;
+        transitions = ints(position, pairs);
+        position += 4 * pairs;
+        seedCumulative = ints(position, seeds);
+        position += 4 * seeds;
+        keys = chars(position, keyLength);
+        position += 2 * keyLength;
+        followers = chars(position, pairs);
+        position += 2 * pairs;
+        end = position;
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return seedCount;
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        int hash = CompactFrequencyModel.hash(text, offset, k);
+
+        //probe the table until an empty slot or a seed with the same characters is found
+        for (int slot = hash & tableMask; table.get(slot) != 0; slot = (slot + 1) & tableMask) {
+            int seedId = table.get(slot) - 1;
+            if (seedHash.get(seedId) == hash && matches(seedOffset.get(seedId), text, offset)) {
+                return seedId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        int offset = seedOffset.get(seedId);
+        return keys.subSequence(offset, offset + k).toString();
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return followerStart.get(seedId + 1) - followerStart.get(seedId);
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return followers.get(followerStart.get(seedId) + index);
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return counts.get(followerStart.get(seedId) + index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        return cumulative.get(followerStart.get(seedId + 1) - 1);
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int start = followerStart.get(seedId);
+        int low = start;
+        int high = followerStart.get(seedId + 1) - 1;
+        int randomIndex = rand.nextInt(cumulative.get(high));
+
+        //find the first follower whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative.get(mid) > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low - start;
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return transitions.get(followerStart.get(seedId) + index);
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        if (seedCount == 0) {
+            return -1;
+        }
+
+        int randomIndex = rand.nextInt(seedCumulative.get(seedCount - 1));
+        int low = 0;
+        int high = seedCount - 1;
+
+        //find the first seed whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seedCumulative.get(mid) > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compute the CRC32 of the model and compare it with the one stored in the header
+     * This reads the whole buffer, so it is left out of loading
+     *
+     * @return boolean representing whether the contents are intact
+     */
+    public boolean verify() {
+        return ModelFile.verify(buffer, end);
+    }
+
+    /**
+     * @return long representing the amount of bytes of the buffer used by the model
+     */
+    public long sizeInBytes() {
+        return end;
+    }
+
+    private boolean matches(int keyOffset, CharSequence text, int offset) {
+        for (int i = 0; i < k; i++) {
+            if (keys.get(keyOffset + i) != text.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IntBuffer ints(int position, int length) {
+        return buffer.slice(position, 4 * length).order(buffer.order()).asIntBuffer();
+    }
+
+    private CharBuffer chars(int position, int length) {
+        return buffer.slice(position, 2 * length).order(buffer.order()).asCharBuffer();
+    }
+}
@@ -0,0 +1,440 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Frozen FrequencyModel of a single-byte text, for ASCII and Latin-1 corpora that are read and written as bytes
+ *
+ * A seed of up to 8 bytes is packed into one long, its first byte in the highest used bits, so lookups compare
+ * longs instead of characters and the next seed is the current one shifted by one byte. Followers are stored as
+ * bytes. Bytes are seen as Latin-1 characters wherever the FrequencyModel interface deals in chars, which also
+ * covers ASCII text in UTF-8 or any other ASCII-compatible charset.
+ *
+ * Seed ids follow the first occurrence of every seed and followers are sorted, like in a CompactFrequencyModel
+ * built on one thread, so both models generate the same text from the same random stream.
+ */
+public class ByteFrequencyModel implements FrequencyModel {
+    static final int MAX_K = 8;
+
+    private final int k;
+    private final long mask;
+    private final long[] keys;
+    private final int[] table;
+    private final int[] followerStart;
+    private final byte[] followers;
+    private final int[] counts;
+    private final int[] cumulative;
+    private final int[] transitions;
+    private final int[] seedCumulative;
+
+    private ByteFrequencyModel(int k, long[] keys, int[] table, int[] followerStart, byte[] followers, int[] counts) {
+        this.k = k;
+        this.mask = mask(k);
+        this.keys = keys;
+        this.table = table;
+        this.followerStart = followerStart;
+        this.followers = followers;
+        this.counts = counts;
+
+        //precompute the running totals and transitions the same way freezing a CompactFrequencyModel does
+        int seeds = keys.length;
+        cumulative = new int[counts.length];
+        transitions = new int[counts.length];
+        seedCumulative = new int[seeds];
+        int seedTotal = 0;
+        for (int seedId = 0; seedId < seeds; seedId++) {
+            int total = 0;
+            for (int i = followerStart[seedId]; i < followerStart[seedId + 1]; i++) {
+                total += counts[i];
+                cumulative[i] = total;
+                transitions[i] = find(next(keys[seedId], followers[i]));
+            }
+            seedTotal += total;
+            seedCumulative[seedId] = seedTotal;
+        }
+    }
+
+    /**
+     * Count every seed of k bytes and the bytes that follow it
+     *
+     * @param text ByteBuffer holding the text from its position to its limit, which are left unchanged
+     * @param k    int representing the level of analysis, from 0 to 8
+     * @return ByteFrequencyModel of the text
+     */
+    public static ByteFrequencyModel build(ByteBuffer text, int k) {
+        if (k < 0 || k > MAX_K) {
+            throw new IllegalArgumentException("Byte models support k from 0 to " + MAX_K + ".");
+        }
+        int start = text.position();
+        int end = text.limit();
+        Counter counter = new Counter(k);
+
+        //every pair remembers the seed it leads to, so counting a byte is a single probe once the pair is known
+        long key = 0;
+        for (int i = start; i < Math.min(end, start + k); i++) {
+            key = key << 8 | (text.get(i) & 0xFF);
+        }
+        int seedId = end - start > k ? counter.intern(key) : -1;
+        for (int i = start + k; i < end; i++) {
+            seedId = counter.count(seedId, text.get(i) & 0xFF);
+        }
+
+        //lay the pairs out per seed, then sort the followers of every seed by byte value
+        int seeds = counter.seeds;
+        int[] followerStart = new int[seeds + 1];
+        for (long pair : counter.pairKeys) {
+            if (pair != -1) {
+                followerStart[(int) (pair >>> 8) + 1]++;
+            }
+        }
+        for (seedId = 0; seedId < seeds; seedId++) {
+            followerStart[seedId + 1] += followerStart[seedId];
+        }
+        int[] fill = Arrays.copyOf(followerStart, seeds);
+        byte[] followers = new byte[counter.pairs];
+        int[] counts = new int[counter.pairs];
+        for (int j = 0; j < counter.pairKeys.length; j++) {
+            if (counter.pairKeys[j] != -1) {
+                int i = fill[(int) (counter.pairKeys[j] >>> 8)]++;
+                followers[i] = (byte) counter.pairKeys[j];
+                counts[i] = counter.pairCounts[j];
+            }
+        }
+        for (seedId = 0; seedId < seeds; seedId++) {
+            sortFollowers(followers, counts, followerStart[seedId], followerStart[seedId + 1]);
+        }
+
+        //the seed ending the text is only kept if it also occurs with a follower, and otherwise was interned last
+        int[] table = counter.table;
+        if (seeds > 0 && followerStart[seeds] == followerStart[seeds - 1]) {
+            seeds--;
+            followerStart = Arrays.copyOf(followerStart, seeds + 1);
+            table = rehash(counter.keys, seeds, table.length);
+        }
+
+        return new ByteFrequencyModel(k, Arrays.copyOf(counter.keys, seeds), table, followerStart, followers, counts);
+    }
+
+    /**
+     * Map a file and count its bytes
+     *
+     * @param path Path of the source file, at most 2 GB
+     * @param k    int representing the level of analysis, from 0 to 8
+     * @return ByteFrequencyModel of the file
+     */
+    public static ByteFrequencyModel build(Path path, int k) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Source file is too large for a byte model.");
+            }
+            return build(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), k);
+        }
+    }
+
+    /**
+     * Check whether every character of a file is one byte, so that a byte model of it matches a character model
+     * Latin-1 is always single-byte; for other ASCII-compatible charsets the file must be pure ASCII.
+     *
+     * @param path    Path of the source file
+     * @param charset Charset the file is encoded in
+     * @return boolean representing whether the file can be modeled as bytes
+     */
+    public static boolean isSingleByte(Path path, Charset charset) throws IOException {
+        if (charset.equals(StandardCharsets.ISO_8859_1)) {
+            return true;
+        }
+        if (!charset.equals(StandardCharsets.US_ASCII) && !charset.equals(StandardCharsets.UTF_8)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CorpusReader.WINDOW_SIZE) {
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CorpusReader.WINDOW_SIZE, size - position));
+
+                //check eight bytes at a time for a set high bit
+                while (bytes.remaining() >= 8) {
+                    if ((bytes.getLong() & 0x8080808080808080L) != 0) {
+                        return false;
+                    }
+                }
+                while (bytes.hasRemaining()) {
+                    if (bytes.get() < 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return keys.length;
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        long key = 0;
+        for (int i = offset; i < offset + k; i++) {
+            char c = text.charAt(i);
+            if (c > 0xFF) {
+                return -1;
+            }
+            key = key << 8 | c;
+        }
+        return find(key);
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        char[] seed = new char[k];
+        long key = keys[seedId];
+        for (int i = k - 1; i >= 0; i--) {
+            seed[i] = (char) (key & 0xFF);
+            key >>>= 8;
+        }
+        return new String(seed);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return followerStart[seedId + 1] - followerStart[seedId];
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return (char) (followers[followerStart[seedId] + index] & 0xFF);
+    }
+
+    /**
+     * @param seedId int representing the id of the seed
+     * @param index  int representing the index of the follower
+     * @return byte representing the follower
+     */
+    public byte getFollowerByte(int seedId, int index) {
+        return followers[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return counts[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        return cumulative[followerStart[seedId + 1] - 1];
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int start = followerStart[seedId];
+        int low = start;
+        int high = followerStart[seedId + 1] - 1;
+        int randomIndex = rand.nextInt(cumulative[high]);
+
+        //find the first follower whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low - start;
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return transitions[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        if (seedCumulative.length == 0) {
+            return -1;
+        }
+
+        int randomIndex = rand.nextInt(seedCumulative[seedCumulative.length - 1]);
+        int low = 0;
+        int high = seedCumulative.length - 1;
+
+        //find the first seed whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seedCumulative[mid] > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return long representing the approximate amount of heap in bytes held by the model
+     */
+    public long estimatedBytes() {
+        long seeds = keys.length;
+        long pairs = followers.length;
+        return 8L * seeds + 4L * table.length + 4L * (2 * seeds + 1) + 13L * pairs;
+    }
+
+    //seed formed by dropping the first byte of key and appending follower
+    private long next(long key, byte follower) {
+        return (key << 8 | (follower & 0xFF)) & mask;
+    }
+
+    private int find(long key) {
+        int slot = slot(key, table.length);
+        while (table[slot] != -1) {
+            if (keys[table[slot]] == key) {
+                return table[slot];
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    private static long mask(int k) {
+        return k == MAX_K ? -1L : (1L << (8 * k)) - 1;
+    }
+
+    //spread the key with a multiplicative hash and take its high bits as the slot
+    private static int slot(long key, int length) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (length - 1);
+    }
+
+    private static int[] emptyTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private static int[] rehash(long[] keys, int seeds, int length) {
+        int[] table = emptyTable(length);
+        for (int seedId = 0; seedId < seeds; seedId++) {
+            int slot = slot(keys[seedId], length);
+            while (table[slot] != -1) {
+                slot = (slot + 1) & (length - 1);
+            }
+            table[slot] = seedId;
+        }
+        return table;
+    }
+
+    //insertion sort by unsigned byte, a seed has at most 256 followers
+    private static void sortFollowers(byte[] followers, int[] counts, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            byte follower = followers[i];
+            int count = counts[i];
+            int j = i - 1;
+            while (j >= from && (followers[j] & 0xFF) > (follower & 0xFF)) {
+                followers[j + 1] = followers[j];
+                counts[j + 1] = counts[j];
+                j--;
+            }
+            followers[j + 1] = follower;
+            counts[j + 1] = count;
+        }
+    }
+    //open-addressing tables of the seeds and the (seed, follower) pairs of a text being counted
+    private static final class Counter {
+        private final long mask;
+        private long[] keys = new long[16];
+        private int[] table = emptyTable(32);
+        private int seeds;
+        private long[] pairKeys = emptyPairs(64);
+        private int[] pairCounts = new int[64];
+        private int[] pairNext = new int[64];
+        private int pairs;
+
+        private Counter(int k) {
+            this.mask = mask(k);
+        }
+
+        //find the id of a seed, giving it the next id if it is new
+        private int intern(long key) {
+            int slot = slot(key, table.length);
+            while (table[slot] != -1) {
+                if (keys[table[slot]] == key) {
+                    return table[slot];
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+
+            int seedId = seeds++;
+            if (seedId == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * keys.length);
+            }
+            keys[seedId] = key;
+            table[slot] = seedId;
+            if (2 * seeds > table.length) {
+                table = rehash(keys, seeds, 2 * table.length);
+            }
+            return seedId;
+        }
+
+        //count one occurrence of follower after the seed and return the id of the seed that follows
+        private int count(int seedId, int follower) {
+            long pair = (long) seedId << 8 | follower;
+            int slot = slot(pair, pairKeys.length);
+            while (pairKeys[slot] != -1) {
+                if (pairKeys[slot] == pair) {
+                    pairCounts[slot]++;
+                    return pairNext[slot];
+                }
+                slot = (slot + 1) & (pairKeys.length - 1);
+            }
+
+            int next = intern((keys[seedId] << 8 | follower) & mask);
+            pairKeys[slot] = pair;
+            pairCounts[slot] = 1;
+            pairNext[slot] = next;
+            if (2 * ++pairs > pairKeys.length) {
+                growPairs();
+            }
+            return next;
+        }
+
+        private void growPairs() {
+            long[] oldKeys = pairKeys;
+            int[] oldCounts = pairCounts;
+            int[] oldNext = pairNext;
+            pairKeys = emptyPairs(2 * oldKeys.length);
+            pairCounts = new int[pairKeys.length];
+            pairNext = new int[pairKeys.length];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != -1) {
+                    int slot = slot(oldKeys[j], pairKeys.length);
+                    while (pairKeys[slot] != -1) {
+                        slot = (slot + 1) & (pairKeys.length - 1);
+                    }
+                    pairKeys[slot] = oldKeys[j];
+                    pairCounts[slot] = oldCounts[j];
+                    pairNext[slot] = oldNext[j];
+                }
+            }
+        }
+
+        private static long[] emptyPairs(int length) {
+            long[] pairKeys = new long[length];
+            Arrays.fill(pairKeys, -1);
+            return pairKeys;
+        }
+    }
+}
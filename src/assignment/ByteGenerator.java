@@ -0,0 +1,83 @@
+package assignment;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates single-byte text from a ByteFrequencyModel one buffer at a time, the byte counterpart of TextGenerator
+ *
+ * The generated bytes are the encoded output, so they can be written to a channel as they are without going
+ * through a CharsetEncoder. Draws and transitions are the same as in TextGenerator, so from the same random stream
+ * both produce the same text.
+ */
+public class ByteGenerator {
+    private final ByteFrequencyModel model;
+    private final RandomGenerator rand;
+
+    private int seedId = -1;
+    private byte[] initialSeed;
+    private int initialSeedIndex;
+    private long reseeds;
+
+    /**
+     * @param model ByteFrequencyModel to generate from
+     * @param rand  RandomGenerator used for every draw of this generator
+     */
+    public ByteGenerator(ByteFrequencyModel model, RandomGenerator rand) {
+        this.model = model;
+        this.rand = rand;
+    }
+
+    /**
+     * Generate the next bytes of the text into buffer, reseeding like TextGenerator.fill
+     *
+     * @param buffer byte[] to write the bytes into
+     * @param offset int representing the index of buffer to start writing at
+     * @param length int representing the amount of bytes to generate
+     * @return int representing the amount of bytes written, always length
+     */
+    public int fill(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+
+        //the first bytes of the text are the initial seed itself, whose characters are all below 256
+        if (seedId == -1) {
+            seedId = reseed();
+            String seed = model.getSeed(seedId);
+            initialSeed = new byte[seed.length()];
+            for (int j = 0; j < initialSeed.length; j++) {
+                initialSeed[j] = (byte) seed.charAt(j);
+            }
+        }
+        while (initialSeedIndex < initialSeed.length && i < end) {
+            buffer[i++] = initialSeed[initialSeedIndex++];
+        }
+
+        while (i < end) {
+            int index = model.sample(seedId, rand);
+            buffer[i++] = model.getFollowerByte(seedId, index);
+
+            //advance to the seed formed by the last k bytes, or reseed if that seed has no followers
+            seedId = model.getTransition(seedId, index);
+            if (seedId == -1) {
+                seedId = reseed();
+                reseeds++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return long representing how often generation reached a seed without followers and jumped to a random seed
+     */
+    public long getReseedCount() {
+        return reseeds;
+    }
+
+    private int reseed() {
+        int randomSeed = model.getRandomSeed(rand);
+        if (randomSeed == -1) {
+            throw new IllegalStateException("Model has no seeds to generate from.");
+        }
+        return randomSeed;
+    }
+}
@@ -0,0 +1,819 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.random.RandomGenerator;
+
+/**
+ * Primitive-backed FrequencyModel that replaces the nested HashMap<String, HashMap<Character, Integer>>
+ *
+ * Seeds are never copied into Strings: each seed is stored as an offset into a shared key buffer (the source text
+ * itself when built with build()) and interned into an open-addressing table of int seed ids. The followers of every
+ * seed sit next to each other, sorted by character, in one char array with a parallel int array of frequencies.
+ * Seed ids are handed out in order of first appearance in the key buffer, from 0 to getSeedCount() - 1.
+ *
+ * Memory target: at most 28 bytes per distinct seed (offset, hash, follower start and 8 to 16 bytes of table slots)
+ * plus 6 bytes per distinct (seed, follower) pair, on top of the 2 bytes per character of the key buffer.
+ * The nested HashMap needs roughly 150 bytes per seed and 50 bytes per follower for the same data.
+ * Freezing the model for generation adds 4 bytes per seed and 8 bytes per pair for the sampling and transition tables.
+ */
+public class CompactFrequencyModel implements FrequencyModel {
+    //smallest amount of positions worth counting on a separate task
+    private static final int MIN_CHUNK = 1 << 16;
+
+    final int k;
+    final char[] keys;
+    final int[] seedOffset;
+    final int[] seedHash;
+    final int[] table;
+    final int[] followerStart;
+    final char[] followers;
+    final int[] counts;
+
+    //running totals of counts within each seed's run of followers, only present once the model is frozen
+    final int[] cumulative;
+
+    //for every (seed, follower) pair the id of the seed that comes next, forming the transition automaton of a frozen model
+    final int[] transitions;
+
+    //running totals of every seed's total frequency, used to pick random seeds in a frozen model
+    final int[] seedCumulative;
+
+    CompactFrequencyModel(int k, char[] keys, int[] seedOffset, int[] seedHash, int[] table,
+                          int[] followerStart, char[] followers, int[] counts) {
+        this(k, keys, seedOffset, seedHash, table, followerStart, followers, counts, null, null, null);
+    }
+
+    private CompactFrequencyModel(int k, char[] keys, int[] seedOffset, int[] seedHash, int[] table,
+                                  int[] followerStart, char[] followers, int[] counts,
+                                  int[] cumulative, int[] transitions, int[] seedCumulative) {
+        this.k = k;
+        this.keys = keys;
+        this.seedOffset = seedOffset;
+        this.seedHash = seedHash;
+        this.table = table;
+        this.followerStart = followerStart;
+        this.followers = followers;
+        this.counts = counts;
+        this.cumulative = cumulative;
+        this.transitions = transitions;
+        this.seedCumulative = seedCumulative;
+    }
+
+    /**
+     * Build the model for every seed of length k in source that has at least one following character
+     *
+     * @param source String representing the input text
+     * @param k      int representing the level of analysis
+     * @return CompactFrequencyModel built from source
+     */
+    public static CompactFrequencyModel build(String source, int k) {
+        char[] text = source.toCharArray();
+        Builder builder = new Builder(text, k);
+        builder.addRange(0, Math.max(0, text.length - k));
+        return builder.build();
+    }
+
+    /**
+     * Build the model straight from a file, counting every chunk as it is decoded instead of reading the whole
+     * text into a String first; the key buffer is the only copy of the text that is kept
+     *
+     * @param path    Path of the source file
+     * @param charset Charset the file is encoded in
+     * @param k       int representing the level of analysis
+     * @return CompactFrequencyModel built from the file
+     */
+    public static CompactFrequencyModel build(Path path, Charset charset, int k) throws IOException {
+        return build(path, charset, k, new StringBuilder());
+    }
+
+    /**
+     * Build the model straight from a file like build(path, charset, k), also keeping the end of its text
+     *
+     * @param path    Path of the source file
+     * @param charset Charset the file is encoded in
+     * @param k       int representing the level of analysis
+     * @param tail    StringBuilder whose contents are replaced by the last k characters of the file
+     * @return CompactFrequencyModel built from the file
+     */
+    public static CompactFrequencyModel build(Path path, Charset charset, int k, StringBuilder tail)
+            throws IOException {
+        Builder builder = new Builder(k, (int) Math.min(Files.size(path), Builder.MAX_KEYS));
+        CorpusReader.read(path, charset, builder::append);
+
+        //the key buffer holds the whole text, so its end is the end of the file
+        tail.setLength(0);
+        tail.append(builder.keys, Math.max(0, builder.length - k), Math.min(k, builder.length));
+        return builder.build();
+    }
+
+    /**
+     * Build the same model as build(source, k) on a ForkJoinPool
+     * The starting positions are split into chunks; each chunk counts its seeds in a partial table that reads up to
+     * k characters past the end of the chunk, so every seed that crosses a boundary is counted exactly once. Partial
+     * tables are merged left to right, which keeps seed ids in order of first appearance and makes the result
+     * identical to the sequential build.
+     *
+     * @param source      String representing the input text
+     * @param k           int representing the level of analysis
+     * @param parallelism int representing the amount of worker threads, 1 builds sequentially
+     * @return CompactFrequencyModel built from source
+     */
+    public static CompactFrequencyModel build(String source, int k, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        int positions = Math.max(0, source.length() - k);
+        if (parallelism == 1 || positions < 2 * MIN_CHUNK) {
+            return build(source, k);
+        }
+
+        char[] text = source.toCharArray();
+        int chunk = Math.max(MIN_CHUNK, positions / (parallelism * 4));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new BuildTask(text, k, 0, positions, chunk)).build();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Merge models built from separate texts into one, as if their counts had been added up
+     * No text is read again: the seeds and counts of each model are interned into a new key buffer holding the key
+     * buffers of the models one after another. Seeds that would cross from one text into the next are not
+     * counted, since the texts were never joined. Seed ids follow the order of the models. Models whose seed ids
+     * are not numbered 0 to getSeedCount() - 1, like a SuffixArrayIndex view, are frozen first, and a BackoffModel
+     * contributes its counts of order k.
+     *
+     * @param models FrequencyModel[] built with the same k
+     * @return CompactFrequencyModel holding the summed counts
+     */
+    public static CompactFrequencyModel merge(FrequencyModel... models) {
+        if (models.length == 0) {
+            throw new IllegalArgumentException("At least one model is needed to merge.");
+        }
+        int k = models[0].getK();
+        long capacity = 0;
+        for (FrequencyModel model : models) {
+            if (model.getK() != k) {
+                throw new IllegalArgumentException("Models of different k cannot be merged.");
+            }
+            capacity += model instanceof CompactFrequencyModel ? ((CompactFrequencyModel) model).usedKeyLength()
+                    : (long) model.getSeedCount() * k;
+        }
+
+        Builder builder = new Builder(k, (int) Math.min(capacity, Builder.MAX_KEYS));
+        for (FrequencyModel model : models) {
+            if (model instanceof BackoffModel) {
+                builder.addModel(((BackoffModel) model).getModel(k));
+            } else if (model instanceof LazyFrequencyModel) {
+                builder.addModel(((LazyFrequencyModel) model).buildModel());
+            } else {
+                builder.addModel(model instanceof CompactFrequencyModel || model instanceof BufferFrequencyModel
+                        ? model : model.freeze());
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return seedOffset.length;
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        int hash = hash(text, offset, k);
+        int mask = table.length - 1;
+
+        //probe the table until an empty slot or a seed with the same characters is found
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int seedId = table[slot] - 1;
+            if (seedHash[seedId] == hash && matches(seedOffset[seedId], text, offset)) {
+                return seedId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        return new String(keys, seedOffset[seedId], k);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return followerStart[seedId + 1] - followerStart[seedId];
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return followers[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return counts[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        if (cumulative != null) {
+            return cumulative[followerStart[seedId + 1] - 1];
+        }
+        return FrequencyModel.super.getTotalFrequency(seedId);
+    }
+
+    /**
+     * Retrieve the index of a random follower of a seed, weighted by the frequency of each follower
+     * A frozen model binary searches the running totals of the seed, so a draw is O(log n) without boxing or allocation
+     *
+     * @param seedId int representing a seed id
+     * @param rand   RandomGenerator used for the draw
+     * @return int representing the index of the chosen follower
+     */
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        if (cumulative == null) {
+            return FrequencyModel.super.sample(seedId, rand);
+        }
+
+        int start = followerStart[seedId];
+        int low = start;
+        int high = followerStart[seedId + 1] - 1;
+        int randomIndex = rand.nextInt(cumulative[high]);
+
+        //find the first follower whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low - start;
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        if (transitions == null) {
+            return FrequencyModel.super.getTransition(seedId, index);
+        }
+        return transitions[followerStart[seedId] + index];
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        if (seedCumulative == null) {
+            return FrequencyModel.super.getRandomSeed(rand);
+        }
+        if (seedCumulative.length == 0) {
+            return -1;
+        }
+
+        int randomIndex = rand.nextInt(seedCumulative[seedCumulative.length - 1]);
+        int low = 0;
+        int high = seedCumulative.length - 1;
+
+        //find the first seed whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seedCumulative[mid] > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Precompute everything generation needs so that no step has to scan followers or hash a seed:
+     * the running totals of every seed's follower counts for sample(), the id of the next seed for every
+     * (seed, follower) pair for getTransition(), and the running totals of the seeds for getRandomSeed()
+     * The returned model shares all other arrays with this one
+     *
+     * @return CompactFrequencyModel ready for generation
+     */
+    @Override
+    public CompactFrequencyModel freeze() {
+        if (cumulative != null) {
+            return this;
+        }
+
+        int seedCount = seedOffset.length;
+        int[] running = new int[counts.length];
+        int[] next = new int[counts.length];
+        int[] seedRunning = new int[seedCount];
+        char[] context = new char[k];
+        CharBuffer contextView = CharBuffer.wrap(context);
+        int seedSum = 0;
+
+        for (int seedId = 0; seedId < seedCount; seedId++) {
+            //the next seed drops the first character of this seed, so copy the remaining k - 1 characters once
+            if (k > 0) {
+                System.arraycopy(keys, seedOffset[seedId] + 1, context, 0, k - 1);
+            }
+
+            int sum = 0;
+            for (int i = followerStart[seedId]; i < followerStart[seedId + 1]; i++) {
+                sum += counts[i];
+                running[i] = sum;
+                if (k == 0) {
+                    next[i] = seedId;
+                } else {
+                    context[k - 1] = followers[i];
+                    next[i] = getSeedId(contextView, 0);
+                }
+            }
+            seedSum += sum;
+            seedRunning[seedId] = seedSum;
+        }
+        return new CompactFrequencyModel(k, keys, seedOffset, seedHash, table, followerStart, followers, counts,
+                running, next, seedRunning);
+    }
+
+    /**
+     * Drop rare seeds and followers to shrink the model
+     * Followers seen fewer than minFollowerCount times after a seed are removed first, then seeds whose remaining
+     * followers add up to fewer than minSeedCount occurrences. When the kept seeds are short enough, their characters
+     * are copied into a new key buffer so the source text is no longer held. Seed ids of the result are dense again,
+     * in the order of this model, and it is not frozen.
+     *
+     * @param minSeedCount     int representing the fewest occurrences a seed needs to be kept
+     * @param minFollowerCount int representing the fewest occurrences a follower needs to be kept
+     * @return CompactFrequencyModel holding only the seeds and followers that were kept
+     */
+    public CompactFrequencyModel prune(int minSeedCount, int minFollowerCount) {
+        boolean[] keep = new boolean[seedOffset.length];
+        int kept = 0;
+        for (int seedId = 0; seedId < keep.length; seedId++) {
+            int total = 0;
+            for (int i = followerStart[seedId]; i < followerStart[seedId + 1]; i++) {
+                total += counts[i] >= minFollowerCount ? counts[i] : 0;
+            }
+            keep[seedId] = total > 0 && total >= minSeedCount;
+            kept += keep[seedId] ? 1 : 0;
+        }
+
+        //seeds overlap in the source, so only a small remainder is cheaper to store seed by seed
+        boolean copyKeys = (long) kept * k < usedKeyLength();
+        Builder builder = copyKeys ? new Builder(k, kept * k) : new Builder(keys, k);
+        for (int seedId = 0; seedId < keep.length; seedId++) {
+            if (!keep[seedId]) {
+                continue;
+            }
+            int offset = seedOffset[seedId];
+            if (copyKeys) {
+                offset = builder.length;
+                builder.copy(CharBuffer.wrap(keys, seedOffset[seedId], k));
+            }
+            int newId = builder.intern(offset);
+            for (int i = followerStart[seedId]; i < followerStart[seedId + 1]; i++) {
+                if (counts[i] >= minFollowerCount) {
+                    builder.add(newId, followers[i], counts[i]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return CompactFrequencyModel sharing the seeds, followers and transitions of this frozen model but not its
+     * counts or running totals, for models that keep their own weights; only lookups and transitions may be used
+     */
+    CompactFrequencyModel withoutCounts() {
+        return new CompactFrequencyModel(k, keys, seedOffset, seedHash, table, followerStart, followers, null, null,
+                transitions, seedCumulative);
+    }
+
+    /**
+     * @return boolean representing whether the running totals used for fast sampling have been computed
+     */
+    public boolean isFrozen() {
+        return cumulative != null;
+    }
+
+    /**
+     * @return long representing the approximate amount of heap in bytes held by the model, including the key buffer
+     */
+    public long estimatedBytes() {
+        return 2L * keys.length + 4L * seedOffset.length + 4L * seedHash.length + 4L * table.length
+                + 4L * followerStart.length + 2L * followers.length + 4L * counts.length
+                + (cumulative == null ? 0 : 4L * cumulative.length + 4L * transitions.length + 4L * seedCumulative.length);
+    }
+
+    /**
+     * @return int representing the length of the part of the key buffer that seeds point into
+     */
+    int usedKeyLength() {
+        int length = 0;
+        for (int offset : seedOffset) {
+            length = Math.max(length, offset + k);
+        }
+        return length;
+    }
+
+    private boolean matches(int keyOffset, CharSequence text, int offset) {
+        for (int i = 0; i < k; i++) {
+            if (keys[keyOffset + i] != text.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int hash(CharSequence text, int offset, int k) {
+        int h = 0;
+        for (int i = offset; i < offset + k; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return mix(h);
+    }
+
+    static int hash(char[] text, int offset, int k) {
+        int h = 0;
+        for (int i = offset; i < offset + k; i++) {
+            h = 31 * h + text[i];
+        }
+        return mix(h);
+    }
+
+    //spread the polynomial hash so that the low bits used for the table index are well distributed
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Mutable accumulator of seed and follower counts over a key buffer
+     * Seeds are interned by offset into the buffer and every (seed, follower) pair is counted in a primitive
+     * open-addressing table, so no object is allocated per position. build() lays the counts out as a model.
+     */
+    static class Builder {
+        //largest key buffer a Java array can hold
+        private static final int MAX_KEYS = Integer.MAX_VALUE - 8;
+
+        private final int k;
+        private char[] keys;
+        private int length;
+        private int counted;
+
+        //when the model is split into shards, only seeds whose hash falls in this shard are counted
+        private int shard;
+        private int shards = 1;
+
+        private int[] seedOffset = new int[16];
+        private int[] seedHash = new int[16];
+        private int seedCount;
+        private int[] table = new int[32];
+
+        //each pair key packs the seed id in the upper bits and the follower in the lower 16 bits, -1 marks an empty slot
+        private long[] pairKeys = emptyPairs(32);
+        private int[] pairCounts = new int[32];
+        private int pairCount;
+
+        /**
+         * @param keys char[] holding the text seeds are read from, shared with the built model and never modified
+         * @param k    int representing the level of analysis
+         */
+        Builder(char[] keys, int k) {
+            this.keys = keys;
+            this.length = keys.length;
+            this.k = k;
+        }
+
+        /**
+         * Create a builder that owns its key buffer and is fed text through append()
+         *
+         * @param k        int representing the level of analysis
+         * @param capacity int representing the expected amount of characters, the buffer grows past it if needed
+         */
+        Builder(int k, int capacity) {
+            this(new char[Math.max(16, capacity)], k);
+            length = 0;
+        }
+
+        /**
+         * Append text to the key buffer and count every seed that now has a following character
+         * Only the new characters are copied, the last k characters of the previous text serve as context
+         *
+         * @param text CharBuffer holding the next characters of the source, consumed by this call
+         */
+        void append(CharBuffer text) {
+            copy(text);
+            if (length - k > counted) {
+                addRange(counted, length - k);
+                counted = length - k;
+            }
+        }
+
+        /**
+         * Create a builder holding the seeds and counts of model, with the same seed ids, that continues the text
+         * after context, the last k characters of the text the model was built from
+         * The key buffer of the model is copied, so appending never touches the arrays the model reads
+         *
+         * @param model   CompactFrequencyModel whose counts are taken over
+         * @param context CharSequence of at most k characters that preceded the text to be appended
+         * @return Builder ready for append()
+         */
+        static Builder from(CompactFrequencyModel model, CharSequence context) {
+            if (context.length() > model.k) {
+                throw new IllegalArgumentException("Context must be at most k characters long.");
+            }
+            Builder builder = new Builder(model.k, model.usedKeyLength() + context.length() + CorpusReader.CHUNK_SIZE);
+            builder.addModel(model);
+
+            //only seeds that start in the context or later are new, the context itself is already counted
+            int counted = builder.length;
+            builder.copy(CharBuffer.wrap(context));
+            builder.counted = counted;
+            return builder;
+        }
+
+        /**
+         * Copy the seeds of model to the end of the key buffer and add their counts, without counting anything
+         * else in the buffer; seeds interned for the first time get ids in the order of model's seed ids
+         *
+         * @param model FrequencyModel of the same k, with seed ids from 0 to getSeedCount() - 1
+         */
+        void addModel(FrequencyModel model) {
+            int base = length;
+            int[] offsets = new int[model.getSeedCount()];
+            if (model instanceof CompactFrequencyModel) {
+                //the seeds of a compact model already share one key buffer, so that is copied as a whole
+                CompactFrequencyModel compact = (CompactFrequencyModel) model;
+                copy(CharBuffer.wrap(compact.keys, 0, compact.usedKeyLength()));
+                for (int seedId = 0; seedId < offsets.length; seedId++) {
+                    offsets[seedId] = base + compact.seedOffset[seedId];
+                }
+            } else {
+                for (int seedId = 0; seedId < offsets.length; seedId++) {
+                    offsets[seedId] = length;
+                    copy(CharBuffer.wrap(model.getSeed(seedId)));
+                }
+            }
+
+            for (int seedId = 0; seedId < offsets.length; seedId++) {
+                int newId = intern(offsets[seedId]);
+                for (int index = 0; index < model.getFollowerCount(seedId); index++) {
+                    add(newId, model.getFollower(seedId, index), model.getFrequency(seedId, index));
+                }
+            }
+        }
+
+        //copy text to the end of the key buffer without counting anything
+        private void copy(CharBuffer text) {
+            int count = text.remaining();
+            if ((long) length + count > MAX_KEYS) {
+                throw new IllegalStateException("Source text is too large for one key buffer.");
+            }
+
+            //the buffer may be shared with models built earlier, so it is only ever grown by copying
+            if (length + count > keys.length) {
+                keys = Arrays.copyOf(keys, (int) Math.min(MAX_KEYS, Math.max((long) length + count, 2L * keys.length)));
+            }
+            text.get(keys, length, count);
+            length += count;
+        }
+
+        /**
+         * Count the seed and the following character for every starting position in [from, to)
+         *
+         * @param from int representing the first starting position
+         * @param to   int representing the position after the last starting position, at most keys.length - k
+         */
+        void addRange(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (shards == 1 || ShardedFrequencyModel.shardOf(hash(keys, i, k), shards) == shard) {
+                    add(intern(i), keys[i + k], 1);
+                }
+            }
+        }
+
+        /**
+         * Count only the seeds that belong to one shard of a ShardedFrequencyModel from now on
+         *
+         * @param shard  int representing the index of the shard
+         * @param shards int representing the amount of shards
+         * @return Builder this builder
+         */
+        Builder restrictTo(int shard, int shards) {
+            this.shard = shard;
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * @param offset int representing the index of the first character of a seed in the key buffer
+         * @return int representing the id of the seed, interning it first if it is new
+         */
+        int intern(int offset) {
+            int hash = hash(keys, offset, k);
+            int mask = table.length - 1;
+            int slot = hash & mask;
+
+            //probe until the seed is found or an empty slot shows that it has not been seen yet
+            while (table[slot] != 0) {
+                int seedId = table[slot] - 1;
+                if (seedHash[seedId] == hash && Arrays.equals(keys, seedOffset[seedId], seedOffset[seedId] + k,
+                        keys, offset, offset + k)) {
+                    return seedId;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (seedCount == seedOffset.length) {
+                seedOffset = Arrays.copyOf(seedOffset, seedCount * 2);
+                seedHash = Arrays.copyOf(seedHash, seedCount * 2);
+            }
+            int seedId = seedCount++;
+            seedOffset[seedId] = offset;
+            seedHash[seedId] = hash;
+            table[slot] = seedId + 1;
+
+            if (seedCount * 2 > table.length) {
+                rehashSeeds();
+            }
+            return seedId;
+        }
+
+        /**
+         * Add count occurrences of follower after the seed with the given id
+         */
+        void add(int seedId, char follower, int count) {
+            long key = ((long) seedId << 16) | follower;
+            int mask = pairKeys.length - 1;
+            int slot = pairHash(key) & mask;
+
+            while (pairKeys[slot] != -1 && pairKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (pairKeys[slot] == -1) {
+                pairKeys[slot] = key;
+                pairCount++;
+            }
+            pairCounts[slot] += count;
+
+            if (pairCount * 2 > pairKeys.length) {
+                rehashPairs();
+            }
+        }
+
+        /**
+         * Add every seed and count of other, which must read from the same key buffer, after the seeds of this builder
+         *
+         * @param other Builder whose counts are added to this one
+         */
+        void merge(Builder other) {
+            //intern the other builder's seeds in their own order so first appearances stay in order
+            int[] seedMap = new int[other.seedCount];
+            for (int seedId = 0; seedId < other.seedCount; seedId++) {
+                seedMap[seedId] = intern(other.seedOffset[seedId]);
+            }
+            for (int slot = 0; slot < other.pairKeys.length; slot++) {
+                long key = other.pairKeys[slot];
+                if (key != -1) {
+                    add(seedMap[(int) (key >>> 16)], (char) key, other.pairCounts[slot]);
+                }
+            }
+        }
+
+        /**
+         * Lay the accumulated counts out as an immutable model, followers of each seed sorted by character
+         *
+         * @return CompactFrequencyModel holding the current counts
+         */
+        CompactFrequencyModel build() {
+            //count the followers of every seed to find where each seed's run of followers starts
+            int[] followerStart = new int[seedCount + 1];
+            for (long key : pairKeys) {
+                if (key != -1) {
+                    followerStart[(int) (key >>> 16) + 1]++;
+                }
+            }
+            for (int i = 0; i < seedCount; i++) {
+                followerStart[i + 1] += followerStart[i];
+            }
+
+            //scatter every pair into its seed's run, packing the follower above the count so a sort orders by character
+            long[] packed = new long[pairCount];
+            int[] fill = Arrays.copyOf(followerStart, seedCount);
+            for (int slot = 0; slot < pairKeys.length; slot++) {
+                long key = pairKeys[slot];
+                if (key != -1) {
+                    int seedId = (int) (key >>> 16);
+                    packed[fill[seedId]++] = ((key & 0xFFFF) << 32) | pairCounts[slot];
+                }
+            }
+
+            char[] followers = new char[pairCount];
+            int[] counts = new int[pairCount];
+            for (int seedId = 0; seedId < seedCount; seedId++) {
+                Arrays.sort(packed, followerStart[seedId], followerStart[seedId + 1]);
+            }
+            for (int i = 0; i < pairCount; i++) {
+                followers[i] = (char) (packed[i] >>> 32);
+                counts[i] = (int) packed[i];
+            }
+
+            return new CompactFrequencyModel(k, keys, Arrays.copyOf(seedOffset, seedCount),
+                    Arrays.copyOf(seedHash, seedCount), table.clone(), followerStart, followers, counts);
+        }
+
+        private void rehashSeeds() {
+            int[] newTable = new int[table.length * 2];
+            int mask = newTable.length - 1;
+            for (int seedId = 0; seedId < seedCount; seedId++) {
+                int slot = seedHash[seedId] & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = seedId + 1;
+            }
+            table = newTable;
+        }
+
+        private void rehashPairs() {
+            long[] oldKeys = pairKeys;
+            int[] oldCounts = pairCounts;
+            pairKeys = emptyPairs(oldKeys.length * 2);
+            pairCounts = new int[oldKeys.length * 2];
+            int mask = pairKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) {
+                    int slot = pairHash(oldKeys[i]) & mask;
+                    while (pairKeys[slot] != -1) {
+                        slot = (slot + 1) & mask;
+                    }
+                    pairKeys[slot] = oldKeys[i];
+                    pairCounts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static long[] emptyPairs(int size) {
+            long[] pairs = new long[size];
+            Arrays.fill(pairs, -1);
+            return pairs;
+        }
+
+        private static int pairHash(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
+    }
+
+    /**
+     * Counts the positions [from, to) of the key buffer, splitting the range in half until it fits in one chunk
+     */
+    private static class BuildTask extends RecursiveTask<Builder> {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] keys;
+        private final int k;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        BuildTask(char[] keys, int k, int from, int to, int chunk) {
+            this.keys = keys;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Builder compute() {
+            if (to - from <= chunk) {
+                Builder builder = new Builder(keys, k);
+                builder.addRange(from, to);
+                return builder;
+            }
+
+            int mid = (from + to) >>> 1;
+            BuildTask left = new BuildTask(keys, k, from, mid, chunk);
+            left.fork();
+            Builder right = new BuildTask(keys, k, mid, to, chunk).compute();
+            Builder merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads a source file through a memory-mapped FileChannel and decodes it in bulk with an explicit charset
+ *
+ * The file is mapped one window at a time and decoded into a fixed-size CharBuffer that is handed to a consumer
+ * whenever it fills up, so the text never has to exist as one String and files larger than the heap can be streamed.
+ * Malformed or unmappable input is replaced, like FileReader does.
+ */
+public class CorpusReader {
+    //bytes of the file mapped at once
+    static final long WINDOW_SIZE = 1L << 26;
+
+    //characters decoded before they are handed to the consumer
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Decode the whole file, passing the text to consumer in order, one chunk at a time
+     * The consumer must copy what it needs, since the same buffer is reused for the next chunk
+     *
+     * @param path     Path of the file to read
+     * @param charset  Charset the file is encoded in
+     * @param consumer Consumer receiving each decoded chunk, positioned at its first character
+     */
+    public static void read(Path path, Charset charset, Consumer<CharBuffer> consumer) throws IOException {
+        read(path, charset, consumer, WINDOW_SIZE);
+    }
+
+    static void read(Path path, Charset charset, Consumer<CharBuffer> consumer, long windowSize) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean last = false;
+
+            while (!last) {
+                //a window always has room for a whole character, so every window makes progress
+                long window = Math.min(Math.max(windowSize, 16), size - position);
+                last = position + window == size;
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+
+                //decode until the window is used up, handing every full buffer of characters to the consumer
+                CoderResult result;
+                while ((result = decoder.decode(bytes, chars, last)).isOverflow()) {
+                    deliver(chars, consumer);
+                }
+                if (result.isError()) {
+                    result.throwException();
+                }
+
+                //a character cut off at the end of the window is left undecoded and mapped again with the next window
+                position += bytes.position();
+            }
+
+            while (decoder.flush(chars).isOverflow()) {
+                deliver(chars, consumer);
+            }
+            deliver(chars, consumer);
+        }
+    }
+
+    private static void deliver(CharBuffer chars, Consumer<CharBuffer> consumer) {
+        chars.flip();
+        if (chars.hasRemaining()) {
+            consumer.accept(chars);
+        }
+        chars.clear();
+    }
+}
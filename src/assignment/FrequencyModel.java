@@ -0,0 +1,174 @@
+package assignment;
+
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only view of a level k Markov model: every seed (a k character string that is followed by at least one
+ * character in the source) is identified by an int seed id, and the distinct characters that follow it are
+ * addressed by an index from 0 to getFollowerCount(seedId) - 1
+ */
+public interface FrequencyModel {
+
+    /**
+     * @return int representing the level of analysis k the model was built with
+     */
+    int getK();
+
+    /**
+     * @return int representing the number of distinct seeds in the model
+     */
+    int getSeedCount();
+
+    /**
+     * Look up the id of the k character seed starting at offset in text
+     *
+     * @param text   CharSequence holding the seed
+     * @param offset int representing the index of the first character of the seed
+     * @return int representing the seed id, or -1 if the seed does not appear in the model
+     */
+    int getSeedId(CharSequence text, int offset);
+
+    /**
+     * @param seedId int representing a seed id
+     * @return String representing the k characters of the seed
+     */
+    String getSeed(int seedId);
+
+    /**
+     * @param seedId int representing a seed id
+     * @return int representing the number of distinct characters that follow the seed
+     */
+    int getFollowerCount(int seedId);
+
+    /**
+     * @param seedId int representing a seed id
+     * @param index  int representing the follower index
+     * @return char representing the follower stored at index
+     */
+    char getFollower(int seedId, int index);
+
+    /**
+     * @param seedId int representing a seed id
+     * @param index  int representing the follower index
+     * @return int representing how many times the follower at index appears after the seed
+     */
+    int getFrequency(int seedId, int index);
+
+    /**
+     * Look up the id of a seed
+     *
+     * @param seed CharSequence of length k
+     * @return int representing the seed id, or -1 if the seed does not appear in the model
+     */
+    default int getSeedId(CharSequence seed) {
+        if (seed.length() != getK()) {
+            return -1;
+        }
+        return getSeedId(seed, 0);
+    }
+
+    /**
+     * @param seedId int representing a seed id
+     * @return int representing the total amount of characters that follow the seed
+     */
+    default int getTotalFrequency(int seedId) {
+        int total = 0;
+        for (int i = 0; i < getFollowerCount(seedId); i++) {
+            total += getFrequency(seedId, i);
+        }
+        return total;
+    }
+
+    /**
+     * Retrieve the index of a random follower of a seed, weighted by the frequency of each follower
+     *
+     * @param seedId int representing a seed id
+     * @param rand   RandomGenerator used for the draw
+     * @return int representing the index of the chosen follower
+     */
+    default int sample(int seedId, RandomGenerator rand) {
+        int randomIndex = rand.nextInt(getTotalFrequency(seedId));
+        int sum = 0;
+        int last = getFollowerCount(seedId) - 1;
+
+        //walk the followers until the amount of characters passed so far exceeds randomIndex
+        for (int i = 0; i < last; i++) {
+            sum += getFrequency(seedId, i);
+            if (sum > randomIndex) {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Find the seed that follows a seed once one of its followers is generated, that is the seed's last k - 1
+     * characters plus the follower
+     * This default builds the next seed as a String, models meant for generation override it with a table lookup
+     *
+     * @param seedId int representing a seed id
+     * @param index  int representing the index of the generated follower
+     * @return int representing the id of the next seed, or -1 if that seed is never followed by a character
+     */
+    default int getTransition(int seedId, int index) {
+        if (getK() == 0) {
+            return seedId;
+        }
+        return getSeedId(getSeed(seedId).substring(1) + getFollower(seedId, index));
+    }
+
+    /**
+     * Retrieve a random seed, weighted by how often the seed is followed by a character
+     * This picks seeds with the same probabilities as choosing a random starting position in the source text
+     *
+     * @param rand RandomGenerator used for the draw
+     * @return int representing the id of the chosen seed, or -1 if the model has no seeds
+     */
+    default int getRandomSeed(RandomGenerator rand) {
+        int total = 0;
+        for (int seedId = 0; seedId < getSeedCount(); seedId++) {
+            total += getTotalFrequency(seedId);
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        int randomIndex = rand.nextInt(total);
+        int sum = 0;
+        for (int seedId = 0; seedId < getSeedCount(); seedId++) {
+            sum += getTotalFrequency(seedId);
+            if (sum > randomIndex) {
+                return seedId;
+            }
+        }
+        return getSeedCount() - 1;
+    }
+
+    /**
+     * Prepare the model for repeated sampling, trading extra memory for faster draws
+     *
+     * @return FrequencyModel with the same contents that is optimized for generation, possibly this model itself
+     */
+    default FrequencyModel freeze() {
+        return this;
+    }
+
+    /**
+     * Build the equivalent nested HashMap of the model, structured as {seed: {character: frequency}}
+     * Meant for callers that still depend on the HashMap representation, since it allocates an entry per follower
+     *
+     * @return HashMap representing the seeds, their followers and the frequencies of the followers
+     */
+    default HashMap<String, HashMap<Character, Integer>> toFrequencyMap() {
+        HashMap<String, HashMap<Character, Integer>> frequencyMap = new HashMap<>();
+        for (int seedId = 0; seedId < getSeedCount(); seedId++) {
+            HashMap<Character, Integer> charMap = new HashMap<>();
+            for (int i = 0; i < getFollowerCount(seedId); i++) {
+                charMap.put(getFollower(seedId, i), getFrequency(seedId, i));
+            }
+            frequencyMap.put(getSeed(seedId), charMap);
+        }
+        return frequencyMap;
+    }
+}
@@ -0,0 +1,83 @@
+package assignment;
+
+import java.nio.CharBuffer;
+
+/**
+ * CompactFrequencyModel that grows as new text arrives, without recounting the text it has already seen
+ *
+ * append() copies only the new characters after the last k characters of the previous text and adds their counts
+ * to the builder in place. Readers never see the builder: publish() lays the counts out as a new frozen snapshot
+ * and swaps it in through a volatile field, so generators keep reading the snapshot they hold while text is being
+ * appended, and pick up new text by asking for current() again. Seeds keep their ids from one snapshot to the next,
+ * new seeds get the ids after them.
+ *
+ * Publishing costs time proportional to the amount of seeds and pairs, not to the length of the text, so callers
+ * ingesting many small batches can append several of them before publishing once.
+ */
+public class IncrementalModel {
+    private final CompactFrequencyModel.Builder builder;
+    private volatile CompactFrequencyModel current;
+
+    /**
+     * Create an empty model that is fed its whole text through append()
+     *
+     * @param k int representing the level of analysis
+     */
+    public IncrementalModel(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be at least 0.");
+        }
+        this.builder = new CompactFrequencyModel.Builder(k, 0);
+        this.current = builder.build().freeze();
+    }
+
+    /**
+     * Continue a model built earlier
+     *
+     * @param model   CompactFrequencyModel built from the previous text, left unchanged
+     * @param context CharSequence holding the last k characters of the previous text, or all of it if it is shorter
+     */
+    public IncrementalModel(CompactFrequencyModel model, CharSequence context) {
+        this.builder = CompactFrequencyModel.Builder.from(model, context);
+        this.current = model.freeze();
+    }
+
+    /**
+     * Add the counts of text, which continues the text seen so far, and publish a new snapshot
+     *
+     * @param text CharSequence holding only the new characters
+     */
+    public void append(CharSequence text) {
+        append(text, true);
+    }
+
+    /**
+     * Add the counts of text, which continues the text seen so far
+     *
+     * @param text    CharSequence holding only the new characters
+     * @param publish boolean representing whether readers should see the new counts right away
+     */
+    public synchronized void append(CharSequence text, boolean publish) {
+        builder.append(CharBuffer.wrap(text));
+        if (publish) {
+            publish();
+        }
+    }
+
+    /**
+     * Make every count appended so far visible to current()
+     *
+     * @return CompactFrequencyModel that is the new snapshot
+     */
+    public synchronized CompactFrequencyModel publish() {
+        current = builder.build().freeze();
+        return current;
+    }
+
+    /**
+     * @return CompactFrequencyModel that is frozen and never changes, holding the counts as of the last publish
+     */
+    public CompactFrequencyModel current() {
+        return current;
+    }
+}
@@ -0,0 +1,354 @@
+package assignment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * FrequencyModel that indexes the positions of every k-gram of the source up front and only counts the followers of
+ * a seed the first time generation asks for it, for short outputs from large sources
+ *
+ * Building is one pass over the text that chains every position into a bucket chosen by the hash of its k-gram, in
+ * ascending order, which takes 4 bytes per character plus the table. A seed id is the position of the seed's first
+ * occurrence, so ids are not numbered from 0 to getSeedCount() - 1; a random seed is the seed at a random position,
+ * which weights seeds by their occurrences like every other model.
+ *
+ * The followers of a seed are counted by walking its chain, sorted and kept with their running totals and
+ * transitions in a bounded cache. The cache is two-way set associative over seed ids and evicts the older entry of a
+ * set. Entries are immutable and lookups take no lock, so generators on several threads can share one model; two
+ * threads missing the same seed at once may both count it.
+ */
+public class LazyFrequencyModel implements FrequencyModel {
+    static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private final char[] text;
+    private final int k;
+    private final int positions;
+    private final int[] head;
+    private final int[] next;
+    private final int tableShift;
+
+    private final Distribution[] cache;
+    private final int cacheShift;
+    private final AtomicLong computed = new AtomicLong();
+    private volatile int seedCount = -1;
+
+    /**
+     * Index the positions of every seed of the source
+     *
+     * @param source    String representing the input text
+     * @param k         int representing the level of analysis
+     * @param cacheSize int representing the amount of seeds whose followers are kept, at least 4
+     */
+    public LazyFrequencyModel(String source, int k, int cacheSize) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        this.text = source.toCharArray();
+        this.k = k;
+        this.positions = Math.max(0, text.length - k);
+
+        //a table about as large as the amount of positions keeps distinct seeds mostly in buckets of their own
+        int tableBits = Math.max(1, Math.min(30, 32 - Integer.numberOfLeadingZeros(Math.max(1, positions - 1))));
+        this.head = new int[1 << tableBits];
+        this.next = new int[positions];
+        this.tableShift = 32 - tableBits;
+        Arrays.fill(head, -1);
+
+        int power = 1;
+        for (int i = 1; i < k; i++) {
+            power *= 31;
+        }
+
+        //hash every position with a rolling hash, keeping the hashes in next until they are replaced by the links
+        int h = 0;
+        for (int i = 0; i < Math.min(k, text.length); i++) {
+            h = 31 * h + text[i];
+        }
+        for (int p = 0; p < positions; p++) {
+            next[p] = h;
+            h = k == 0 ? 0 : (h - text[p] * power) * 31 + text[p + k];
+        }
+
+        //link the positions backwards, so every chain ends up in ascending order of position
+        for (int p = positions - 1; p >= 0; p--) {
+            int bucket = bucket(next[p]);
+            next[p] = head[bucket];
+            head[bucket] = p;
+        }
+
+        int sets = Integer.highestOneBit(Math.max(4, cacheSize) / 2);
+        this.cache = new Distribution[2 * sets];
+        this.cacheShift = 32 - Integer.numberOfTrailingZeros(sets);
+    }
+
+    /**
+     * @return long representing how many times the followers of a seed were counted, once per cache miss
+     */
+    public long getComputedCount() {
+        return computed.get();
+    }
+
+    /**
+     * Count every seed of the source into a CompactFrequencyModel, for callers that need dense seed ids
+     *
+     * @return CompactFrequencyModel of the same source and level
+     */
+    public CompactFrequencyModel buildModel() {
+        return CompactFrequencyModel.build(new String(text), k);
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Counting the distinct seeds looks up the seed of every position, so it is only done when asked for
+     */
+    @Override
+    public int getSeedCount() {
+        if (seedCount == -1) {
+            int count = 0;
+            for (int p = 0; p < positions; p++) {
+                if (find(text, p) == p) {
+                    count++;
+                }
+            }
+            seedCount = count;
+        }
+        return seedCount;
+    }
+
+    @Override
+    public int getSeedId(CharSequence pattern, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + k; i++) {
+            h = 31 * h + pattern.charAt(i);
+        }
+
+        //the chain is in ascending order, so the first match is the first occurrence
+        for (int p = head[bucket(h)]; p != -1; p = next[p]) {
+            int i = 0;
+            while (i < k && text[p + i] == pattern.charAt(offset + i)) {
+                i++;
+            }
+            if (i == k) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        return new String(text, seedId, k);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return distribution(seedId).followers.length;
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return distribution(seedId).followers[index];
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        int[] cumulative = distribution(seedId).cumulative;
+        return index == 0 ? cumulative[0] : cumulative[index] - cumulative[index - 1];
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        int[] cumulative = distribution(seedId).cumulative;
+        return cumulative[cumulative.length - 1];
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int[] cumulative = distribution(seedId).cumulative;
+        int low = 0;
+        int high = cumulative.length - 1;
+        int randomIndex = rand.nextInt(cumulative[high]);
+
+        //find the first follower whose running total exceeds randomIndex
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > randomIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return distribution(seedId).transitions[index];
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        if (positions == 0) {
+            return -1;
+        }
+        return find(text, rand.nextInt(positions));
+    }
+
+    /**
+     * Seed ids are positions, so the map is built from the first occurrence of every seed without using the cache
+     */
+    @Override
+    public HashMap<String, HashMap<Character, Integer>> toFrequencyMap() {
+        HashMap<String, HashMap<Character, Integer>> frequencyMap = new HashMap<>();
+        for (int p = 0; p < positions; p++) {
+            if (find(text, p) == p) {
+                Distribution distribution = count(p);
+                HashMap<Character, Integer> charMap = new HashMap<>();
+                for (int i = 0; i < distribution.followers.length; i++) {
+                    charMap.put(distribution.followers[i], distribution.cumulative[i]
+                            - (i == 0 ? 0 : distribution.cumulative[i - 1]));
+                }
+                frequencyMap.put(getSeed(p), charMap);
+            }
+        }
+        return frequencyMap;
+    }
+
+    //find the cached followers of a seed, counting them on a miss and moving a hit in the second way to the first
+    private Distribution distribution(int seedId) {
+        int set = (seedId * 0x9E3779B9 >>> cacheShift) << 1;
+        Distribution first = cache[set];
+        if (first != null && first.seedId == seedId) {
+            return first;
+        }
+        Distribution second = cache[set + 1];
+        if (second != null && second.seedId == seedId) {
+            cache[set + 1] = first;
+            cache[set] = second;
+            return second;
+        }
+
+        Distribution counted = count(seedId);
+        computed.incrementAndGet();
+        cache[set + 1] = first;
+        cache[set] = counted;
+        return counted;
+    }
+
+    //walk the chain of the seed from its first occurrence and count the character after every occurrence
+    private Distribution count(int seedId) {
+        char[] keys = new char[16];
+        int[] counts = new int[16];
+        int distinct = 0;
+        for (int p = seedId; p != -1; p = next[p]) {
+            if (p != seedId && !sameSeed(p, seedId)) {
+                continue;
+            }
+            char follower = text[p + k];
+            int slot = follower & (keys.length - 1);
+            while (counts[slot] != 0 && keys[slot] != follower) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            if (counts[slot]++ == 0) {
+                keys[slot] = follower;
+                if (2 * ++distinct > keys.length) {
+                    char[] oldKeys = keys;
+                    int[] oldCounts = counts;
+                    keys = new char[2 * oldKeys.length];
+                    counts = new int[2 * oldKeys.length];
+                    for (int j = 0; j < oldKeys.length; j++) {
+                        if (oldCounts[j] != 0) {
+                            int newSlot = oldKeys[j] & (keys.length - 1);
+                            while (counts[newSlot] != 0) {
+                                newSlot = (newSlot + 1) & (keys.length - 1);
+                            }
+                            keys[newSlot] = oldKeys[j];
+                            counts[newSlot] = oldCounts[j];
+                        }
+                    }
+                }
+            }
+        }
+
+        //sort the followers by character, packing each with its count so one sort moves both
+        long[] packed = new long[distinct];
+        int n = 0;
+        for (int j = 0; j < keys.length; j++) {
+            if (counts[j] != 0) {
+                packed[n++] = (long) keys[j] << 32 | counts[j];
+            }
+        }
+        Arrays.sort(packed);
+
+        char[] followers = new char[distinct];
+        int[] cumulative = new int[distinct];
+        int[] transitions = new int[distinct];
+        char[] nextSeed = new char[k];
+        System.arraycopy(text, seedId + Math.min(1, k), nextSeed, 0, Math.max(0, k - 1));
+        int total = 0;
+        for (int i = 0; i < distinct; i++) {
+            followers[i] = (char) (packed[i] >>> 32);
+            total += (int) packed[i];
+            cumulative[i] = total;
+            if (k == 0) {
+                transitions[i] = seedId;
+            } else {
+                nextSeed[k - 1] = followers[i];
+                transitions[i] = find(nextSeed, 0);
+            }
+        }
+        return new Distribution(seedId, followers, cumulative, transitions);
+    }
+
+    private int find(char[] pattern, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + k; i++) {
+            h = 31 * h + pattern[i];
+        }
+        for (int p = head[bucket(h)]; p != -1; p = next[p]) {
+            int i = 0;
+            while (i < k && text[p + i] == pattern[offset + i]) {
+                i++;
+            }
+            if (i == k) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameSeed(int p, int q) {
+        for (int i = 0; i < k; i++) {
+            if (text[p + i] != text[q + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //spread the polynomial hash with a multiplicative hash and take its high bits as the bucket
+    private int bucket(int h) {
+        return h * 0x9E3779B9 >>> tableShift;
+    }
+
+    //followers of one seed sorted by character, with their running totals and the seeds they lead to
+    private static final class Distribution {
+        private final int seedId;
+        private final char[] followers;
+        private final int[] cumulative;
+        private final int[] transitions;
+
+        private Distribution(int seedId, char[] followers, int[] cumulative, int[] transitions) {
+            this.seedId = seedId;
+            this.followers = followers;
+            this.cumulative = cumulative;
+            this.transitions = transitions;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary format of a frozen CompactFrequencyModel, laid out so it can be used straight from a mapped file
+ *
+ * Layout, all values little-endian:
+ * header (64 bytes): magic "RWMF", version, k, key length, seed count, table length, pair count, hash of the build
+ * description, CRC32 of everything after the header as a long, zero padding
+ * int sections: seed offsets, seed hashes, seed table, follower starts (seed count + 1), counts, running totals,
+ * transitions, running seed totals
+ * char sections: key buffer, followers
+ *
+ * Every array the model uses at generation time is stored, so loading maps the file and reads the header without
+ * rebuilding or copying anything onto the heap. A file is mapped as a single ByteBuffer, so a model file, like an
+ * OffHeapFrequencyModel in the same format, holds at most Integer.MAX_VALUE bytes.
+ */
+public class ModelFile {
+    static final int MAGIC = 0x46574D52;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int BUILD_OFFSET = 28;
+    static final int CHECKSUM_OFFSET = 32;
+
+    /**
+     * Write the model to a file, freezing it first if needed
+     *
+     * @param model CompactFrequencyModel to save
+     * @param path  Path of the model file, replaced if it exists
+     */
+    public static void save(CompactFrequencyModel model, Path path) throws IOException {
+        save(model, path, "");
+    }
+
+    /**
+     * Write the model to a file, freezing it first if needed, recording how it was built in the header
+     *
+     * @param model CompactFrequencyModel to save
+     * @param path  Path of the model file, replaced if it exists
+     * @param build String describing the options the model was built with, for example its charset
+     */
+    public static void save(CompactFrequencyModel model, Path path, String build) throws IOException {
+        CompactFrequencyModel frozen = model.freeze();
+        long size = size(frozen);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Model is too large for a single model file.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            encode(frozen, buffer);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(BUILD_OFFSET, build.hashCode());
+            buffer.force();
+        }
+    }
+
+    /**
+     * Map a model file and wrap it as a model, checking the header and section sizes but not the checksum
+     *
+     * @param path Path of the model file
+     * @return BufferFrequencyModel reading from the mapped file
+     */
+    public static BufferFrequencyModel load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model file is too large to map.");
+            }
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read only the header of a model file and compare it with the model a caller is about to build
+     *
+     * @param path  Path of the model file
+     * @param k     int representing the level of analysis the model must have
+     * @param build String describing the options the model must have been built with, as given to save
+     * @return boolean representing whether the file is a model file of this version with the same k and build
+     */
+    public static boolean matches(Path path, int k, String build) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) == -1) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && header.getInt(8) == k && header.getInt(BUILD_OFFSET) == build.hashCode();
+    }
+
+    /**
+     * @param model CompactFrequencyModel that is frozen
+     * @return long representing the amount of bytes the model takes in this format
+     */
+    static long size(CompactFrequencyModel model) {
+        int seeds = model.seedOffset.length;
+        int pairs = model.followers.length;
+        return HEADER_SIZE + 4L * (4L * seeds + 1 + model.table.length + 3L * pairs)
+                + 2L * (model.usedKeyLength() + pairs);
+    }
+
+    /**
+     * Write the model in this format into buffer, starting at its position 0
+     *
+     * @param model  CompactFrequencyModel that is frozen
+     * @param buffer ByteBuffer with at least size(model) bytes
+     */
+    static void encode(CompactFrequencyModel model, ByteBuffer buffer) {
+        ByteBuffer out = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int keyLength = model.usedKeyLength();
+
+        out.putInt(MAGIC).putInt(VERSION).putInt(model.k).putInt(keyLength).putInt(model.seedOffset.length)
+                .putInt(model.table.length).putInt(model.followers.length).putInt(0);
+        out.position(HEADER_SIZE);
+
+        for (int[] section : new int[][]{model.seedOffset, model.seedHash, model.table, model.followerStart,
+                model.counts, model.cumulative, model.transitions, model.seedCumulative}) {
+            out.asIntBuffer().put(section);
+            out.position(out.position() + 4 * section.length);
+        }
+        out.asCharBuffer().put(model.keys, 0, keyLength);
+        out.position(out.position() + 2 * keyLength);
+        out.asCharBuffer().put(model.followers);
+        out.position(out.position() + 2 * model.followers.length);
+
+        out.putLong(CHECKSUM_OFFSET, checksum(out, out.position()));
+    }
+
+    /**
+     * Check the header of an encoded model and wrap it
+     *
+     * @param buffer ByteBuffer holding an encoded model from index 0
+     * @return BufferFrequencyModel reading from buffer
+     */
+    static BufferFrequencyModel wrap(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.limit() < HEADER_SIZE || in.getInt(0) != MAGIC) {
+            throw new IOException("Not a model file.");
+        }
+        if (in.getInt(4) != VERSION) {
+            throw new IOException("Unsupported model file version " + in.getInt(4) + ".");
+        }
+
+        int k = in.getInt(8);
+        int keyLength = in.getInt(12);
+        int seeds = in.getInt(16);
+        int tableLength = in.getInt(20);
+        int pairs = in.getInt(24);
+        long expected = HEADER_SIZE + 4L * (4L * seeds + 1 + tableLength + 3L * pairs) + 2L * (keyLength + pairs);
+        if (k < 0 || keyLength < 0 || seeds < 0 || pairs < 0 || Integer.bitCount(tableLength) != 1
+                || expected > in.limit()) {
+            throw new IOException("Model file is truncated or corrupt.");
+        }
+        return new BufferFrequencyModel(in, k, keyLength, seeds, tableLength, pairs);
+    }
+
+    /**
+     * @param buffer ByteBuffer holding an encoded model
+     * @return boolean representing whether the CRC32 stored in the header matches the contents
+     */
+    static boolean verify(ByteBuffer buffer, long length) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        return in.getLong(CHECKSUM_OFFSET) == checksum(in, length);
+    }
+
+    private static long checksum(ByteBuffer buffer, long end) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit((int) end).position(HEADER_SIZE));
+        return crc.getValue();
+    }
+}
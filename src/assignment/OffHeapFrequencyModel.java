@@ -0,0 +1,184 @@
+package assignment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+
+/**
+ * Frozen FrequencyModel kept outside the Java heap, so a large model adds nothing for the garbage collector to trace
+ *
+ * The model is encoded in the ModelFile format into a direct ByteBuffer and read in place through a
+ * BufferFrequencyModel, the same way a mapped model file is: the seed table is open addressing over seed hashes and
+ * the followers, counts and running totals are flat sections, so the heap only holds a handful of buffer views.
+ *
+ * close() frees the memory right away instead of waiting for the buffer to be collected. Any call after that throws
+ * an IllegalStateException, and the model must not be closed while another thread is still generating from it.
+ */
+public class OffHeapFrequencyModel implements FrequencyModel, Closeable {
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        //the cleaner of a direct buffer is only reachable through sun.misc.Unsafe, without it GC frees the memory
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private ByteBuffer buffer;
+    private BufferFrequencyModel model;
+    private final int k;
+    private final int seedCount;
+
+    private OffHeapFrequencyModel(ByteBuffer buffer, BufferFrequencyModel model) {
+        this.buffer = buffer;
+        this.model = model;
+        this.k = model.getK();
+        this.seedCount = model.getSeedCount();
+    }
+
+    /**
+     * Copy a model off the heap, freezing it first if needed; the heap model can be dropped afterwards
+     *
+     * @param model CompactFrequencyModel to copy
+     * @return OffHeapFrequencyModel holding the same seeds, followers and counts
+     */
+    public static OffHeapFrequencyModel of(CompactFrequencyModel model) {
+        CompactFrequencyModel frozen = model.freeze();
+        long size = ModelFile.size(frozen);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Model is too large for a single off-heap buffer.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        ModelFile.encode(frozen, buffer);
+        try {
+            return new OffHeapFrequencyModel(buffer, ModelFile.wrap(buffer));
+        } catch (IOException e) {
+            //encode always writes a valid header
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Build a model from a file and move it off the heap, so the heap holds it only while it is built
+     *
+     * @param path    Path of the source file
+     * @param charset Charset the file is encoded in
+     * @param k       int representing the level of analysis
+     * @return OffHeapFrequencyModel of the file
+     */
+    public static OffHeapFrequencyModel build(Path path, Charset charset, int k) throws IOException {
+        return of(CompactFrequencyModel.build(path, charset, k));
+    }
+
+    /**
+     * @return long representing the amount of off-heap bytes held by the model, 0 once it is closed
+     */
+    public long sizeInBytes() {
+        return model == null ? 0 : model.sizeInBytes();
+    }
+
+    /**
+     * @return boolean representing whether close() has been called
+     */
+    public boolean isClosed() {
+        return model == null;
+    }
+
+    /**
+     * Free the off-heap memory of the model, calling it again has no effect
+     */
+    @Override
+    public void close() {
+        ByteBuffer freed = buffer;
+        model = null;
+        buffer = null;
+        if (freed != null && INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, freed);
+            } catch (ReflectiveOperationException e) {
+                //the buffer is unreachable now, so the garbage collector frees it instead
+            }
+        }
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return seedCount;
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        return model().getSeedId(text, offset);
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        return model().getSeed(seedId);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return model().getFollowerCount(seedId);
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return model().getFollower(seedId, index);
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return model().getFrequency(seedId, index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        return model().getTotalFrequency(seedId);
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        return model().sample(seedId, rand);
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return model().getTransition(seedId, index);
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        return model().getRandomSeed(rand);
+    }
+
+    //reading a freed buffer would crash the JVM, so a closed model fails loudly instead
+    private BufferFrequencyModel model() {
+        BufferFrequencyModel current = model;
+        if (current == null) {
+            throw new IllegalStateException("Model is closed.");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,153 @@
+package assignment;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Frozen FrequencyModel whose follower counts are stored in a few bits each, for models that must fit a fixed
+ * memory budget
+ *
+ * The counts of every seed are scaled so that its most frequent follower gets the largest value that fits in the
+ * chosen number of bits, and rounded to the nearest step; a follower never rounds down to 0, so no follower is lost.
+ * The result is the probability of each follower stored with that many bits of precision. Counts of up to 8 bits
+ * take one byte per pair and counts of up to 16 bits two, instead of the 8 bytes of counts and running totals of a
+ * frozen CompactFrequencyModel. Draws scan the followers of a seed, which are few for all but the shortest seeds.
+ *
+ * Seeds, followers and transitions are shared with the model this one was made from, its counts are not kept.
+ */
+public class QuantizedFrequencyModel implements FrequencyModel {
+    private final CompactFrequencyModel model;
+    private final int bits;
+    private final byte[] byteWeights;
+    private final short[] shortWeights;
+    private final int[] totals;
+
+    /**
+     * @param model CompactFrequencyModel to quantize, frozen first if needed
+     * @param bits  int representing the amount of bits per follower count, from 1 to 16
+     */
+    public QuantizedFrequencyModel(CompactFrequencyModel model, int bits) {
+        if (bits < 1 || bits > 16) {
+            throw new IllegalArgumentException("Counts are quantized to 1 to 16 bits.");
+        }
+        CompactFrequencyModel frozen = model.freeze();
+        this.model = frozen.withoutCounts();
+        this.bits = bits;
+
+        int pairs = frozen.counts.length;
+        int seeds = model.getSeedCount();
+        int maxWeight = (1 << bits) - 1;
+        byteWeights = bits <= 8 ? new byte[pairs] : null;
+        shortWeights = bits <= 8 ? null : new short[pairs];
+        totals = new int[seeds];
+
+        for (int seedId = 0; seedId < seeds; seedId++) {
+            int start = model.followerStart[seedId];
+            int end = model.followerStart[seedId + 1];
+            int max = 0;
+            for (int i = start; i < end; i++) {
+                max = Math.max(max, frozen.counts[i]);
+            }
+
+            int total = 0;
+            for (int i = start; i < end; i++) {
+                int weight = max <= maxWeight ? frozen.counts[i]
+                        : (int) Math.max(1, Math.round((double) frozen.counts[i] * maxWeight / max));
+                if (byteWeights != null) {
+                    byteWeights[i] = (byte) weight;
+                } else {
+                    shortWeights[i] = (short) weight;
+                }
+                total += weight;
+            }
+            totals[seedId] = total;
+        }
+    }
+
+    /**
+     * @return int representing the amount of bits each follower count is stored in
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    @Override
+    public int getK() {
+        return model.getK();
+    }
+
+    @Override
+    public int getSeedCount() {
+        return model.getSeedCount();
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        return model.getSeedId(text, offset);
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        return model.getSeed(seedId);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return model.getFollowerCount(seedId);
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        return model.getFollower(seedId, index);
+    }
+
+    /**
+     * @return int representing the quantized weight of the follower, proportional to its count
+     */
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return weight(model.followerStart[seedId] + index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        return totals[seedId];
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int start = model.followerStart[seedId];
+        int randomIndex = rand.nextInt(totals[seedId]);
+
+        //find the follower whose weight covers randomIndex
+        int i = start;
+        for (randomIndex -= weight(i); randomIndex >= 0; randomIndex -= weight(i)) {
+            i++;
+        }
+        return i - start;
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return model.getTransition(seedId, index);
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        return model.getRandomSeed(rand);
+    }
+
+    /**
+     * @return long representing the approximate amount of heap in bytes held by the model, including the key buffer
+     * and the per-seed totals of the weights
+     */
+    public long estimatedBytes() {
+        long pairs = model.followers.length;
+        long seeds = model.seedOffset.length;
+        return 2L * model.keys.length + 4L * model.table.length + 4L * (4 * seeds + 1) + 6L * pairs
+                + (byteWeights != null ? pairs : 2L * pairs) + 4L * totals.length;
+    }
+
+    private int weight(int pair) {
+        return byteWeights != null ? byteWeights[pair] & 0xFF : shortWeights[pair] & 0xFFFF;
+    }
+}
@@ -1,14 +1,59 @@
 package assignment;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
+/**
+ * Every RandomWriter holds its own state, so separate instances never affect each other. The frozen model returned
+ * by getFrequencyModel() is immutable and can be shared by any number of threads, each generating through its own
+ * TextGenerator (see newGenerator()), without locks.
+ *
+ * With a Tokenizer set (the --tokens option of main), the model is built over the tokens of the source instead of
+ * its characters; see TokenDictionary.
+ */
 public class RandomWriter implements TextProcessor {
-    private static StringBuffer content;
-    private static StringBuffer outputText;
-    private static HashMap<String, HashMap<Character, Integer>> frequencyMap;
-    private static Random rand;
-    private static int k;
+    static final String TOKENS_SUFFIX = ".tokens";
+
+    private final StringBuilder content;
+    private final StringBuilder outputText;
+    private RandomGenerator rand;
+    private RandomGeneratorFactory<RandomGenerator> randomFactory;
+    private FrequencyModel frequencyModel;
+    private SuffixArrayIndex index;
+    private IncrementalModel incrementalModel;
+    private String modelContext = "";
+    private int k;
+    private int parallelism;
+    private Charset charset;
+    private boolean streamOutput;
+    private boolean backgroundWriter;
+    private String modelFilename;
+    private boolean verifyModel;
+    private Tokenizer tokenizer;
+    private boolean backoff;
+    private int shards;
+    private boolean offHeap;
+    private boolean byteMode;
+    private int segments;
+    private int lazyCacheSize;
+    private boolean dropContent;
+    private boolean contentReleased;
+    private Long seed;
+    private int minSeedCount;
+    private int minFollowerCount;
+    private int quantizeBits;
+    private TokenDictionary dictionary;
+    private final RunMetrics metrics = new RunMetrics();
 
     /**
      * Ensure that passed arguments are valid and if so, call methods to read, generate, and write text
@@ -43,78 +88,404 @@ public class RandomWriter implements TextProcessor {
             throw new IllegalArgumentException();
         }
 
-        //ensure input file can be read
         RandomWriter randomWriter = (RandomWriter) createProcessor(k);
-        randomWriter.readText(source);
+        for (int i = 4; i < args.length; i++) {
+            randomWriter.setOption(args[i]);
+        }
+
+        //with metrics enabled, expose them over JMX while the writer runs and print them once it is done
+        if (RunMetrics.ENABLED) {
+            randomWriter.metrics.register();
+        }
+        try {
+            randomWriter.run(source, result, k, length);
+        } finally {
+            if (RunMetrics.ENABLED) {
+                randomWriter.metrics.unregister();
+            }
+        }
+        if (RunMetrics.ENABLED) {
+            System.out.println(randomWriter.metrics.toJson());
+        }
+    }
+
+    /**
+     * Read, generate and write text for main once the arguments are parsed and the options applied
+     *
+     * @param source String representing the source file name
+     * @param result String representing the output file name
+     * @param k      int representing the level of analysis
+     * @param length int representing the desired length of the output text
+     */
+    private void run(String source, String result, int k, int length) throws IOException {
+        //only an unreduced CompactFrequencyModel can be saved or moved off the heap, so options building any other
+        //model are refused before the source is read rather than after the model is built and the output written
+        boolean otherModel = backoff || lazyCacheSize > 0 || shards > 1 || minSeedCount > 1 || minFollowerCount > 1
+                || quantizeBits > 0;
+        if (modelFilename != null && otherModel) {
+            System.err.println("A model file cannot be used with backoff, lazy, sharded, pruned or quantized models.");
+            throw new IllegalArgumentException();
+        }
+        if (offHeap && otherModel) {
+            System.err.println("Backoff, lazy, sharded, pruned or quantized models cannot be moved off the heap.");
+            throw new IllegalArgumentException();
+        }
+
+        //a single-byte source is counted and written as bytes when asked to, without decoding or encoding
+        if (byteMode) {
+            if (canUseBytes(source, k)) {
+                checkOutput(result);
+                writeBytes(source, result, k, length);
+                return;
+            }
+            System.err.println("Source is not single-byte or options need characters, byte mode not used.");
+        }
+
+        //ensure input file can be read, or use the saved model of the source if one is at least as new as the source
+        //and built the same way, rebuilding and replacing it otherwise
+        //when nothing needs the text after the build, the model is counted straight from the file and content is
+        //never filled, so the text is not held as a String next to the model
+        boolean modelSaved = hasSavedModel(source, k);
+        boolean buildFromFile = !modelSaved && canBuildFromFile(k);
+        if (modelSaved) {
+            loadModel(modelFilename);
+        } else if (!buildFromFile) {
+            readText(source);
+        }
 
         //ensure k and length are non-negative and k is less than the length of content
-        if (k < 0 || length < 0 || content.length() <= k) {
+        //a loaded model has no content and is built with this k, so it must have at least one seed
+        //a model built from the file is checked for seeds once it is built
+        boolean invalidSource = modelSaved
+                ? frequencyModel.getSeedCount() == 0
+                : !buildFromFile && content.length() <= k;
+        if (k < 0 || length < 0 || invalidSource) {
             System.err.println("k or length is invalid.");
             throw new IllegalArgumentException();
         }
 
-        //if k = 0, create a text of randomly chosen characters
-        if (k == 0) {
-            randomWriter.kEqualToZero(length);
+        //if k = 0, create a text of randomly chosen characters (otherwise the text is generated from the model)
+        //without the content, the model of k = 0 draws the same characters from its single seed
+        if (k == 0 && !streamOutput && segments == 0 && !modelSaved && tokenizer == null && !dropContent) {
+            kEqualToZero(length);
         }
 
         //check validity of output
-        randomWriter.checkOutput(result);
+        checkOutput(result);
+
+        //build frequencyTable and precompute its sampling tables for generation, saving it if a model file was given
+        if (!modelSaved) {
+            if (buildFromFile) {
+                createFrequencyFromFile(source, k);
+            } else {
+                createFrequency(getContent(), k);
+            }
+            freezeModel();
+            if (dropContent) {
+                releaseContent();
+            }
+            if (minSeedCount > 1 || minFollowerCount > 1 || quantizeBits > 0) {
+                System.out.println(reduceModel(minSeedCount, minFollowerCount, quantizeBits));
+            }
+
+            //in token mode k counts tokens, so the source may have more than k characters but no seed
+            //a lazy model would count its seeds by looking up every position, so it is asked for a random seed
+            boolean noSeeds = frequencyModel instanceof LazyFrequencyModel
+                    ? frequencyModel.getRandomSeed(new SplittableRandom(0)) == -1 : frequencyModel.getSeedCount() == 0;
+            if (noSeeds) {
+                System.err.println("k or length is invalid.");
+                throw new IllegalArgumentException();
+            }
+            if (modelFilename != null) {
+                saveModel(modelFilename);
+            }
+
+            //a loaded model is already read from the mapped file, outside the heap
+            if (offHeap) {
+                moveModelOffHeap();
+            }
+        }
+
+        //generate randomly written text and write it to the output file, at once, while generating or in segments
+        try {
+            if (segments > 0) {
+                writeSegments(result, length);
+            } else if (streamOutput) {
+                streamText(result, length);
+            } else {
+                generateText(length);
+                writeText(result, length);
+            }
+        } finally {
+            if (frequencyModel instanceof OffHeapFrequencyModel) {
+                ((OffHeapFrequencyModel) frequencyModel).close();
+            }
+        }
+    }
+
+    //k = 0 draws from content, token mode encodes it and the other models and the parallel build are built from a
+    //String, everything else can be counted from the file
+    private boolean canBuildFromFile(int k) {
+        return k > 0 && tokenizer == null && !backoff && shards == 1 && lazyCacheSize == 0 && parallelism == 1;
+    }
 
-        //build frequencyTable
-        randomWriter.createFrequency(content.toString(), k);
+    //byte mode covers plain sequential generation from a source with k of at most 8, other options work on
+    //characters, and the byte model is built and written on one thread without streaming
+    private boolean canUseBytes(String source, int k) throws IOException {
+        return k >= 0 && k <= ByteFrequencyModel.MAX_K && tokenizer == null && !backoff && shards == 1 && !offHeap
+                && segments == 0 && lazyCacheSize == 0 && modelFilename == null && minSeedCount <= 1
+                && minFollowerCount <= 1 && quantizeBits == 0 && parallelism == 1 && !streamOutput
+                && ByteFrequencyModel.isSingleByte(checkSource(source), charset);
+    }
+
+    /**
+     * Build a ByteFrequencyModel of a single-byte source and write the generated bytes straight to the output file
+     * The output is in the charset of the source, since every byte stands for the same character in both.
+     *
+     * @param inputFilename  String representing the name of the source file, single-byte in instance variable charset
+     * @param outputFilename String representing the name of the output file
+     * @param k              int representing the level of analysis, from 0 to 8
+     * @param length         int representing the desired length of the output text
+     */
+    public void writeBytes(String inputFilename, String outputFilename, int k, int length) throws IOException {
+        Path sourceFile = checkSource(inputFilename);
+        if (k < 0 || k > ByteFrequencyModel.MAX_K || length < 0 || Files.size(sourceFile) <= k) {
+            System.err.println("k or length is invalid.");
+            throw new IllegalArgumentException();
+        }
+
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+        ByteFrequencyModel model = ByteFrequencyModel.build(sourceFile, k);
+        frequencyModel = model;
+        if (RunMetrics.ENABLED) {
+            //the file is mapped and read while it is counted, so reading takes no time of its own
+            metrics.recordRead(Files.size(sourceFile), 0);
+            metrics.recordBuild(model, System.nanoTime() - start);
+            start = System.nanoTime();
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(outputFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteGenerator generator = new ByteGenerator(model, splitRandom());
+            byte[] buffer = new byte[8192];
+            for (int remaining = length; remaining > 0; remaining -= buffer.length) {
+                int count = generator.fill(buffer, 0, Math.min(buffer.length, remaining));
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+
+            if (RunMetrics.ENABLED) {
+                long nanos = System.nanoTime() - start;
+                metrics.recordGenerate(generator.getReseedCount(), length, nanos);
+                metrics.recordWrite(length, nanos);
+            }
+        } catch (IOException e) {
+            System.err.println("Error while writing to file.");
+            throw e;
+        }
+    }
 
-        //generate randomly written text
-        randomWriter.generateText(length);
+    /**
+     * Apply an optional argument of the form --name=value, arguments that are not options are ignored
+     *
+     * @param option String representing the argument passed after the four required ones
+     */
+    private void setOption(String option) {
+        if (!option.startsWith("--")) {
+            return;
+        }
+        int split = option.indexOf('=');
+        String name = split == -1 ? option.substring(2) : option.substring(2, split);
+        String value = split == -1 ? "" : option.substring(split + 1);
 
-        //write the generated text to the output file
-        randomWriter.writeText(result, length);
+        //if the value of a numeric option cannot be parsed, throw an error
+        try {
+            switch (name) {
+                case "parallelism":
+                    setParallelism(Integer.parseInt(value));
+                    break;
+                case "charset":
+                    setCharset(value);
+                    break;
+                //a model file is one mapping and an off-heap model one direct buffer, so either holds at most 2 GB
+                case "model":
+                    modelFilename = value;
+                    break;
+                case "verify-model":
+                    setModelVerification(true);
+                    break;
+                case "stream":
+                    setStreaming(true, value.equals("background"));
+                    break;
+                case "backoff":
+                    setBackoff(true);
+                    break;
+                case "shards":
+                    setShards(Integer.parseInt(value));
+                    break;
+                case "offheap":
+                    offHeap = true;
+                    break;
+                case "bytes":
+                    byteMode = true;
+                    break;
+                case "segments":
+                    setSegments(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    setSeed(Long.parseLong(value));
+                    break;
+                case "random":
+                    setRandomAlgorithm(value);
+                    break;
+                case "drop-content":
+                    dropContent = true;
+                    break;
+                case "lazy":
+                    setLazy(value.isEmpty() ? LazyFrequencyModel.DEFAULT_CACHE_SIZE : Integer.parseInt(value));
+                    break;
+                case "prune":
+                    String[] counts = value.split(",");
+                    minSeedCount = Integer.parseInt(counts[0]);
+                    minFollowerCount = counts.length > 1 ? Integer.parseInt(counts[1]) : 1;
+                    break;
+                case "quantize":
+                    quantizeBits = Integer.parseInt(value);
+                    break;
+                case "tokens":
+                    setTokenizer(tokenizerNamed(value));
+                    break;
+                default:
+                    System.err.println("Unknown option " + option + " ignored.");
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Value of " + name + " not an integer.");
+            throw new IllegalArgumentException();
+        }
     }
 
     public static TextProcessor createProcessor(int level) {
         return new RandomWriter(level);
     }
 
+    /**
+     * @param level int representing the level of k analysis
+     * @param seed  long representing the seed of the random stream, see setSeed
+     * @return TextProcessor whose output only depends on the seed, its input and its options
+     */
+    public static TextProcessor createProcessor(int level, long seed) {
+        RandomWriter randomWriter = new RandomWriter(level);
+        randomWriter.setSeed(seed);
+        return randomWriter;
+    }
+
     /**
      * Instantiate private instance variables
      *
      * @param level int representing the level of k analysis
      */
     private RandomWriter(int level) {
-        content = new StringBuffer();
-        frequencyMap = new HashMap<>();
-        outputText = new StringBuffer();
-        rand = new Random();
+        content = new StringBuilder();
+        frequencyModel = null;
+        index = null;
+        outputText = new StringBuilder();
+        rand = new SplittableRandom();
         k = level;
+        parallelism = 1;
+        charset = StandardCharsets.UTF_8;
+        streamOutput = false;
+        backgroundWriter = false;
+        shards = 1;
+        minSeedCount = 1;
+        minFollowerCount = 1;
+        quantizeBits = 0;
     }
 
     /**
-     * Read the file, if able, and set class variable content to the text inside file
+     * Read the file, if able, and set instance variable content to the text inside file
+     * The file is memory-mapped and decoded in bulk with instance variable charset, see CorpusReader
      *
      * @param inputFilename String representing the name of the file to be read
      */
     public void readText(String inputFilename) throws IOException {
         try {
-            File sourceFile = new File(inputFilename);
             //check if the input is a valid file and exists, if not throw an exception
-            if (!sourceFile.isFile() || !sourceFile.exists()) {
-                System.err.println("Source file is not valid or does not exist.");
-                throw new IllegalArgumentException();
+            Path sourceFile = checkSource(inputFilename);
+
+            //if valid and exists, decode the file chunk by chunk and append each chunk to content
+            long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+            CorpusReader.read(sourceFile, charset, content::append);
+            if (RunMetrics.ENABLED) {
+                metrics.recordRead(Files.size(sourceFile), System.nanoTime() - start);
             }
+        } catch (IOException e) {
+            System.err.println("Error while reading file.");
+            throw e;
+        }
+    }
 
-            //if valid and exists, read each character and append to content
-            FileReader fileReader = new FileReader(inputFilename);
-            int ch;
-            while ((ch = fileReader.read()) != -1) {
-                content.append((char) ch);
+    /**
+     * Build frequencyModel straight from the file, counting each decoded chunk as it arrives without storing the
+     * text in content
+     *
+     * @param inputFilename String representing the name of the file to be read
+     * @param k             int representing the level of analysis
+     */
+    public void createFrequencyFromFile(String inputFilename, int k) throws IOException {
+        try {
+            Path sourceFile = checkSource(inputFilename);
+            long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+            StringBuilder tail = new StringBuilder();
+            frequencyModel = CompactFrequencyModel.build(sourceFile, charset, k, tail);
+            modelContext = tail.toString();
+            dictionary = null;
+            if (RunMetrics.ENABLED) {
+                //the file is decoded while it is counted, so reading takes no time of its own
+                metrics.recordRead(Files.size(sourceFile), 0);
+                metrics.recordBuild(frequencyModel, System.nanoTime() - start);
             }
-            fileReader.close();
         } catch (IOException e) {
             System.err.println("Error while reading file.");
             throw e;
         }
     }
 
+    /**
+     * Set the charset source files are decoded with, UTF-8 unless changed
+     *
+     * @param charsetName String representing the name of the charset
+     */
+    public void setCharset(String charsetName) {
+        try {
+            charset = Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Charset " + charsetName + " is not supported.");
+            throw new IllegalArgumentException();
+        }
+    }
+
+    //the tokenizer of the --tokens option, reported like an unsupported charset if there is none by that name
+    private static Tokenizer tokenizerNamed(String name) {
+        try {
+            return Tokenizer.forName(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Tokenizer " + name + " is not supported.");
+            throw new IllegalArgumentException();
+        }
+    }
+
+    //check if the input is a valid file and exists, if not throw an exception
+    private Path checkSource(String inputFilename) {
+        File sourceFile = new File(inputFilename);
+        if (!sourceFile.isFile() || !sourceFile.exists()) {
+            System.err.println("Source file is not valid or does not exist.");
+            throw new IllegalArgumentException();
+        }
+        return sourceFile.toPath();
+    }
+
     /**
      * Check the validity of the output file, if not create the new file
      *
@@ -145,54 +516,198 @@ public class RandomWriter implements TextProcessor {
      * @param length         int representing the desired length of the output text
      */
     public void writeText(String outputFilename, int length) throws IOException {
-        FileWriter fileWriter = null;
-
-        //write the generated text into the output file
+        //write the generated text into the output file, encoded with instance variable charset
         //catch any potential IOExceptions and print error statement
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
         try {
-            fileWriter = new FileWriter(outputFilename);
-            fileWriter.write(outputText.toString());
+            StreamingTextWriter writer = new StreamingTextWriter(Paths.get(outputFilename), charset, false);
+            try (writer) {
+                char[] buffer = new char[8192];
+                for (int i = 0; i < outputText.length(); i += buffer.length) {
+                    int count = Math.min(buffer.length, outputText.length() - i);
+                    outputText.getChars(i, i + count, buffer, 0);
+                    writer.write(buffer, 0, count);
+                }
+            }
+            if (RunMetrics.ENABLED) {
+                metrics.recordWrite(writer.getBytesWritten(), System.nanoTime() - start);
+            }
         } catch (IOException e) {
             System.err.println("Error while writing to file.");
             throw e;
         }
-        fileWriter.close();
     }
 
     /**
-     * Generate the output text to be written in output file
+     * Generate the output text and write it to the output file at the same time, without keeping it in outputText
+     * Memory use stays the same however large length is, see StreamingTextWriter
      *
-     * @param length int representing the desired length of the output text
+     * @param outputFilename String representing the name of the file to be opened/written to
+     * @param length         int representing the desired length of the output text
      */
-    public void generateText(int length) throws IOException {
+    public void streamText(String outputFilename, int length) throws IOException {
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            StreamingTextWriter writer = new StreamingTextWriter(Paths.get(outputFilename), charset, backgroundWriter);
+            TextGenerator generator;
+            try (writer) {
+                //if the file is empty, leave the output file empty
+                if (length == 0) {
+                    return;
+                }
 
-        //if the file is empty, return an empty output text
-        if (length == 0) {
-            return;
+                generator = newGenerator();
+                char[] buffer = new char[8192];
+                for (int remaining = length; remaining > 0; remaining -= buffer.length) {
+                    int count = generator.fill(buffer, 0, Math.min(buffer.length, remaining));
+                    writer.write(buffer, 0, count);
+                }
+            }
+
+            //generating and writing overlap, so both are measured over the whole run
+            if (RunMetrics.ENABLED) {
+                long nanos = System.nanoTime() - start;
+                metrics.recordGenerate(generator, length, nanos);
+                metrics.recordWrite(writer.getBytesWritten(), nanos);
+            }
+        } catch (IOException e) {
+            System.err.println("Error while writing to file.");
+            throw e;
+        }
+    }
+
+    /**
+     * Generate the output as independent segments on parallelism threads and write them in order, see SegmentedWriter
+     * With a seed set the file only depends on the seed, the random algorithm and the amount of segments, not on the
+     * amount of threads.
+     *
+     * @param outputFilename String representing the name of the output file
+     * @param length         int representing the desired length of the output text
+     */
+    public void writeSegments(String outputFilename, int length) throws IOException {
+        if (frequencyModel == null) {
+            System.err.println("Frequency model has not been created.");
+            throw new IllegalStateException();
+        }
+        long masterSeed;
+        RandomGeneratorFactory<RandomGenerator> factory;
+        synchronized (this) {
+            masterSeed = seed != null ? seed : rand.nextLong();
+            factory = randomFactory;
         }
 
-        //choose a random index in content to use as starting index for the initial seed
-        int randomIndex = rand.nextInt(content.length() - k);
-        String seed = content.substring(randomIndex, randomIndex + k);
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            SegmentedWriter writer = new SegmentedWriter(this::newGenerator, charset, Math.max(1, segments), factory,
+                    masterSeed);
+            long bytes = writer.write(Paths.get(outputFilename), length, parallelism);
+            if (RunMetrics.ENABLED) {
+                long nanos = System.nanoTime() - start;
+                metrics.recordGenerate(writer.getReseedCount(), length, nanos);
+                metrics.recordWrite(bytes, nanos);
+            }
+        } catch (IOException e) {
+            System.err.println("Error while writing to file.");
+            throw e;
+        }
+    }
 
-        outputText.append(seed);
+    /**
+     * Choose how many independent segments main splits the output into, generated in parallel by writeSegments
+     *
+     * @param segments int representing the amount of segments, 0 generates one continuous text
+     */
+    public void setSegments(int segments) {
+        if (segments < 0) {
+            System.err.println("The amount of segments cannot be negative.");
+            throw new IllegalArgumentException();
+        }
+        this.segments = segments;
+    }
 
-        while (outputText.length() < length) {
-            //retrieve the value  for the respective seed, which is a hashmap type
-            HashMap<Character, Integer> charMap = frequencyMap.get(seed);
+    /**
+     * Seed the random stream of this writer, so that the same seed, source and options give the same output
+     * The seed is also the master seed writeSegments splits the stream of every segment from. A stochastic
+     * algorithm such as SecureRandom ignores seeds, so it cannot be seeded.
+     *
+     * @param seed long representing the seed
+     */
+    public synchronized void setSeed(long seed) {
+        checkSeedable(randomFactory, seed);
+        this.seed = seed;
+        rand = newRandom();
+    }
 
-            //retrieve a random character from the value of this hashmap and append to outputText
-            char nextChar = getRandomChar(charMap);
-            outputText.append(nextChar);
+    /**
+     * Choose the algorithm of the random stream, SplittableRandom unless changed
+     * Any algorithm of RandomGeneratorFactory can be named, such as L64X128MixRandom or Xoshiro256PlusPlus.
+     * Generators get streams split off this one when the algorithm is splittable, or seeded from it otherwise.
+     *
+     * @param algorithm String representing the name of the algorithm
+     */
+    public synchronized void setRandomAlgorithm(String algorithm) {
+        RandomGeneratorFactory<RandomGenerator> factory;
+        try {
+            factory = RandomGeneratorFactory.of(algorithm);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Random algorithm " + algorithm + " is not supported.");
+            throw new IllegalArgumentException();
+        }
+        checkSeedable(factory, seed);
+        randomFactory = factory;
+        rand = newRandom();
+    }
 
-            //redefine the seed by removing its first character and appending the recently added character
-            seed = seed.substring(1) + nextChar;
+    //a seed only reproduces the output with an algorithm whose streams depend on nothing but their seed
+    private static void checkSeedable(RandomGeneratorFactory<RandomGenerator> factory, Long seed) {
+        if (factory != null && seed != null && factory.isStochastic()) {
+            System.err.println("Random algorithm " + factory.name() + " cannot be seeded.");
+            throw new IllegalArgumentException();
+        }
+    }
 
-            //if at any point, seed does not exist in the map (reaches the end of content), choose a new random seed using the method above
-            if (!frequencyMap.containsKey(seed)) {
-                randomIndex = rand.nextInt(content.length() - k);
-                seed = content.substring(randomIndex, randomIndex + k);
-            }
+    //a random stream of the chosen algorithm, seeded with seed if one was set
+    private RandomGenerator newRandom() {
+        if (randomFactory == null) {
+            return seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        }
+        return seed == null ? randomFactory.create() : randomFactory.create(seed);
+    }
+
+    /**
+     * Choose whether main generates the text straight into the output file instead of building it in outputText
+     *
+     * @param enabled    boolean representing whether the output is streamed
+     * @param background boolean representing whether a separate thread writes the encoded output
+     */
+    public void setStreaming(boolean enabled, boolean background) {
+        streamOutput = enabled;
+        backgroundWriter = enabled && background;
+    }
+
+    /**
+     * Generate the output text to be written in output file
+     *
+     * @param length int representing the desired length of the output text
+     */
+    public void generateText(int length) throws IOException {
+
+        //if the file is empty, return an empty output text, and if kEqualToZero already filled it, generate nothing
+        int generated = length - outputText.length();
+        if (generated <= 0) {
+            return;
+        }
+
+        //generate the text in fixed-size pieces, the generator keeps the current seed between pieces
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+        TextGenerator generator = newGenerator();
+        char[] buffer = new char[8192];
+        while (outputText.length() < length) {
+            int count = generator.fill(buffer, 0, Math.min(buffer.length, length - outputText.length()));
+            outputText.append(buffer, 0, count);
+        }
+        if (RunMetrics.ENABLED) {
+            metrics.recordGenerate(generator, generated, System.nanoTime() - start);
         }
     }
 
@@ -227,26 +742,362 @@ public class RandomWriter implements TextProcessor {
     }
 
     /**
-     * Build a 2D HashMap that organizes all possible seeds and all the characters and the frequencies that follow it
-     * HashMap structure looks like {seed: {character: frequency}}
+     * Retrieve a random character that follows a seed based on the probabilistic model frequencyModel
+     *
+     * @param seedId int representing the id of the seed in frequencyModel
+     * @return char that represents a randomly chosen character that follows the seed
+     */
+    public char getRandomChar(int seedId) {
+        return frequencyModel.getFollower(seedId, frequencyModel.sample(seedId, rand));
+    }
+
+    /**
+     * Build the model that organizes all possible seeds and all the characters and the frequencies that follow it
+     * Seeds and followers are stored in primitive arrays, see CompactFrequencyModel
      *
      * @param source String representing the input file
      * @param k      int representing the level of analysis
      */
     public void createFrequency(String source, int k) throws IOException {
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+        String text = modelText(source);
+        if (backoff) {
+            frequencyModel = BackoffModel.build(text, k);
+        } else if (shards > 1) {
+            frequencyModel = ShardedFrequencyModel.build(text, k, shards);
+        } else if (lazyCacheSize > 0) {
+            frequencyModel = new LazyFrequencyModel(text, k, lazyCacheSize);
+        } else {
+            frequencyModel = CompactFrequencyModel.build(text, k, parallelism);
+        }
+        modelContext = text.substring(Math.max(0, text.length() - k));
+        if (RunMetrics.ENABLED) {
+            metrics.recordBuild(frequencyModel, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Choose whether createFrequency keeps counts for every order up to k, so that generation backs off to a shorter
+     * context instead of jumping to a random seed when a context is never followed by a character
+     *
+     * @param enabled boolean representing whether a BackoffModel is built
+     */
+    public void setBackoff(boolean enabled) {
+        backoff = enabled;
+    }
+
+    /**
+     * Choose whether createFrequency only indexes the positions of every seed and counts the followers of a seed when
+     * generation first reaches it, see LazyFrequencyModel
+     *
+     * @param cacheSize int representing the amount of seeds whose followers are kept, 0 builds the whole model
+     */
+    public void setLazy(int cacheSize) {
+        if (cacheSize < 0) {
+            System.err.println("The cache size cannot be negative.");
+            throw new IllegalArgumentException();
+        }
+        lazyCacheSize = cacheSize;
+    }
+
+    /**
+     * Clear content once frequencyModel is built, so the source is no longer held next to the model
+     * Generation reseeds from the seeds of the model, weighted by how often they occur, and never reads content.
+     * Afterwards getContent() is empty, appended text is only counted and createIndex cannot be called.
+     */
+    public void releaseContent() {
+        if (frequencyModel == null) {
+            System.err.println("Frequency model has not been created.");
+            throw new IllegalStateException();
+        }
+        content.setLength(0);
+        content.trimToSize();
+        contentReleased = true;
+    }
+
+    /**
+     * Choose how many shards createFrequency splits the model into by seed hash, see ShardedFrequencyModel
+     *
+     * @param shards int representing the amount of shards, 1 builds a single CompactFrequencyModel
+     */
+    public void setShards(int shards) {
+        if (shards < 1) {
+            System.err.println("The amount of shards must be positive.");
+            throw new IllegalArgumentException();
+        }
+        this.shards = shards;
+    }
+
+    /**
+     * Shrink frequencyModel by dropping rare seeds and followers and storing the remaining counts in fewer bits
+     *
+     * @param minSeedCount     int representing the fewest occurrences a seed needs to be kept, 1 keeps every seed
+     * @param minFollowerCount int representing the fewest occurrences a follower needs to be kept, 1 keeps all
+     * @param bits             int representing the amount of bits per count from 1 to 16, or 0 to keep full counts
+     * @return ReductionReport comparing the reduced model with the full one
+     */
+    public ReductionReport reduceModel(int minSeedCount, int minFollowerCount, int bits) {
+        if (!(frequencyModel instanceof CompactFrequencyModel)) {
+            System.err.println("Only a model built by createFrequency can be reduced.");
+            throw new IllegalStateException();
+        }
+        if (bits < 0 || bits > 16) {
+            System.err.println("Quantization must be 1 to 16 bits, or 0 for none.");
+            throw new IllegalArgumentException();
+        }
+
+        CompactFrequencyModel full = ((CompactFrequencyModel) frequencyModel).freeze();
+        CompactFrequencyModel pruned = minSeedCount <= 1 && minFollowerCount <= 1 ? full
+                : full.prune(minSeedCount, minFollowerCount).freeze();
+        if (bits == 0) {
+            frequencyModel = pruned;
+            return ReductionReport.compare(full, pruned, pruned.estimatedBytes());
+        }
+        QuantizedFrequencyModel quantized = new QuantizedFrequencyModel(pruned, bits);
+        frequencyModel = quantized;
+        return ReductionReport.compare(full, quantized, quantized.estimatedBytes());
+    }
+
+    /**
+     * Switch to a word-level model, where seeds are k tokens and followers are tokens, for the models built after
+     * this call; generated text is still measured in characters
+     *
+     * @param tokenizer Tokenizer splitting the source into tokens, or null to model characters
+     */
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    //the text a model is built over: the source itself, or in token mode the ids of its tokens in a new dictionary
+    private String modelText(String source) {
+        if (tokenizer == null) {
+            dictionary = null;
+            return source;
+        }
+        dictionary = new TokenDictionary();
+        return String.valueOf(dictionary.encode(source, tokenizer));
+    }
+
+    /**
+     * Add text to the end of content and update frequencyModel with it, counting only the new characters
+     * The text continues the source frequencyModel was built from, in token mode starting at a token boundary; the
+     * previous model is left unchanged, so generators already reading it keep working while text is appended
+     *
+     * @param text String representing the new text
+     */
+    public void appendText(String text) {
+        if (!(frequencyModel instanceof CompactFrequencyModel)) {
+            System.err.println("Only a model built by createFrequency can be appended to.");
+            throw new IllegalStateException();
+        }
+
+        //start over from the current model if it was replaced since the last append
+        if (incrementalModel == null || incrementalModel.current() != frequencyModel) {
+            incrementalModel = new IncrementalModel((CompactFrequencyModel) frequencyModel, modelContext);
+        }
+        incrementalModel.append(dictionary == null ? text : String.valueOf(dictionary.encode(text, tokenizer)));
+        if (!contentReleased) {
+            content.append(text);
+        }
+        frequencyModel = incrementalModel.current();
+    }
+
+    /**
+     * Add the counts of a model built from another text to frequencyModel, without reading either text again
+     * The merged model is frozen for generation. Text appended afterwards is counted as starting a new text
+     *
+     * @param model FrequencyModel built with the same k, for example loaded from a model file
+     */
+    public void mergeModel(FrequencyModel model) {
+        if (frequencyModel == null) {
+            System.err.println("Frequency model has not been created.");
+            throw new IllegalStateException();
+        }
+        if (model.getK() != k) {
+            System.err.println("Models of different k cannot be merged.");
+            throw new IllegalArgumentException();
+        }
+        frequencyModel = CompactFrequencyModel.merge(frequencyModel, model).freeze();
+        modelContext = "";
+    }
+
+    /**
+     * Set how many threads createFrequency uses to build frequencyModel, the result does not depend on it
+     *
+     * @param threads int representing the level of parallelism, 1 builds on the calling thread
+     */
+    public void setParallelism(int threads) {
+        if (threads < 1) {
+            System.err.println("Parallelism must be at least 1.");
+            throw new IllegalArgumentException();
+        }
+        parallelism = threads;
+    }
+
+    /**
+     * Save frequencyModel, frozen, in the binary format of ModelFile
+     * The file is written through a single mapping, so a model of more than 2 GB in that format cannot be saved.
+     *
+     * @param modelFilename String representing the name of the model file to be written
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        if (!(frequencyModel instanceof CompactFrequencyModel)) {
+            System.err.println("Only an unsharded model built by createFrequency can be saved.");
+            throw new IllegalStateException();
+        }
+        try {
+            ModelFile.save((CompactFrequencyModel) frequencyModel, Paths.get(modelFilename), modelBuild());
+
+            //a token model keeps its dictionary next to the model file, a character model has none
+            Path dictionaryPath = Paths.get(modelFilename + TOKENS_SUFFIX);
+            if (dictionary != null) {
+                dictionary.save(dictionaryPath);
+            } else {
+                Files.deleteIfExists(dictionaryPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Error while saving model.");
+            throw e;
+        }
+    }
+
+    /**
+     * Memory-map a model file saved by saveModel and use it as frequencyModel, without reading any source text
+     * Only the header is checked, so loading does not read the whole file; the checksum is verified as well once
+     * setModelVerification is on.
+     *
+     * @param modelFilename String representing the name of the model file to be read
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        try {
+            long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
+            BufferFrequencyModel model = ModelFile.load(Paths.get(modelFilename));
+            if (verifyModel && !model.verify()) {
+                throw new IOException("Model file " + modelFilename + " does not match its checksum.");
+            }
+            frequencyModel = model;
+            if (RunMetrics.ENABLED) {
+                metrics.recordBuild(frequencyModel, System.nanoTime() - start);
+            }
+            k = frequencyModel.getK();
+            dictionary = tokenizer == null ? null : TokenDictionary.load(Paths.get(modelFilename + TOKENS_SUFFIX));
+        } catch (IOException e) {
+            System.err.println("Error while loading model.");
+            throw e;
+        }
+    }
+
+    /**
+     * Choose whether loadModel verifies the checksum of a model file, which reads the whole file before generating
+     *
+     * @param enabled boolean representing whether loaded model files are verified
+     */
+    public void setModelVerification(boolean enabled) {
+        verifyModel = enabled;
+    }
+
+    //check whether a model file was given that exists, is not older than the source it was built from, models
+    //tokens exactly when token mode is on and was built with this k, backend and charset according to its header
+    private boolean hasSavedModel(String sourceFilename, int k) {
+        if (modelFilename == null) {
+            return false;
+        }
+        File modelFile = new File(modelFilename);
+        boolean tokenModel = new File(modelFilename + TOKENS_SUFFIX).isFile();
+        return modelFile.isFile() && modelFile.lastModified() >= new File(sourceFilename).lastModified()
+                && tokenModel == (tokenizer != null) && ModelFile.matches(modelFile.toPath(), k, modelBuild());
+    }
+
+    //the backend, tokenizer and charset a saved model is built with, recorded in its header by saveModel
+    private String modelBuild() {
+        String backend = tokenizer == null ? "characters"
+                : tokenizer == Tokenizer.WORDS ? "words"
+                : tokenizer == Tokenizer.WORDS_AND_PUNCTUATION ? "punctuation" : "tokens";
+        return "compact " + backend + " " + charset.name();
+    }
+
+    /**
+     * Create a generator over frequencyModel with its own random stream split off from this writer's
+     * Generators are meant for one thread each, while the frozen model they read can be shared by all of them
+     *
+     * @return TextGenerator continuing from nothing, ready to fill buffers with generated text
+     */
+    public TextGenerator newGenerator() {
+        if (frequencyModel == null) {
+            System.err.println("Frequency model has not been created.");
+            throw new IllegalStateException();
+        }
+        return newGenerator(splitRandom());
+    }
+
+    //an independent random stream for a generator, split off rand where the algorithm supports it
+    private synchronized RandomGenerator splitRandom() {
+        if (rand instanceof RandomGenerator.SplittableGenerator) {
+            return ((RandomGenerator.SplittableGenerator) rand).split();
+        }
+        return randomFactory.create(rand.nextLong());
+    }
 
-        //iterate through all the characters from source text, leaving one character at the end so that all seeds in the map have at least one following character
-        for (int i = 0; i <= source.length() - k - 1; i++) {
-            String seed = source.substring(i, i + k);
-            char nextChar = source.charAt(i + k);
+    private TextGenerator newGenerator(RandomGenerator random) {
+        return dictionary == null ? new TextGenerator(frequencyModel, random)
+                : new TokenGenerator(frequencyModel, dictionary, random);
+    }
+
+    /**
+     * Build a suffix array index over content, after which setLevel can switch to any level of analysis without
+     * reading the content again
+     */
+    public void createIndex() {
+        if (contentReleased) {
+            System.err.println("Content has been released.");
+            throw new IllegalStateException();
+        }
+        index = new SuffixArrayIndex(modelText(content.toString()));
+    }
+
+    /**
+     * Change the level of analysis, building the new frequencyModel from the index made by createIndex
+     * Every call builds and freezes a whole model in one pass over the suffix array, O(n) in the length of the text,
+     * so that generation afterwards runs on the precomputed tables. SuffixArrayIndex.getModel would switch in
+     * constant time instead, but then every generated character is a binary search over the suffix array.
+     *
+     * @param level int representing the new level of k analysis
+     */
+    public void setLevel(int level) {
+        if (index == null) {
+            System.err.println("Index has not been created.");
+            throw new IllegalStateException();
+        }
+        if (level < 0 || level >= index.length()) {
+            System.err.println("k is invalid.");
+            throw new IllegalArgumentException();
+        }
+        k = level;
+        frequencyModel = index.buildModel(level).freeze();
+        modelContext = index.substring(index.length() - level, index.length());
+    }
 
-            //if the seed is not already a key, put a new key-value pair with the seed and a new hashmap
-            if (!frequencyMap.containsKey(seed)) frequencyMap.put(seed, new HashMap<>());
+    /**
+     * Copy frequencyModel out of the heap into a direct buffer, see OffHeapFrequencyModel
+     * The heap model is dropped, and the caller closes the off-heap model once it is done with it. The buffer holds
+     * the model in the format of ModelFile, which can take at most 2 GB.
+     */
+    public void moveModelOffHeap() {
+        if (!(frequencyModel instanceof CompactFrequencyModel)) {
+            System.err.println("Only an unreduced model built by createFrequency can be moved off the heap.");
+            throw new IllegalStateException();
+        }
+        frequencyModel = OffHeapFrequencyModel.of((CompactFrequencyModel) frequencyModel);
+        incrementalModel = null;
+    }
 
-            //if inner hashmap does not already contain a value, put a new key-value pair with character and new frequency of 1
-            //add one to the value of the inner hashmap
-            HashMap<Character, Integer> charMap = frequencyMap.get(seed);
-            charMap.put(nextChar, charMap.getOrDefault(nextChar, 0) + 1);
+    /**
+     * Switch frequencyModel to its frozen form, so that every draw in generateText is a binary search over
+     * precomputed running totals instead of a scan over all followers of the seed
+     */
+    public void freezeModel() {
+        if (frequencyModel != null) {
+            frequencyModel = frequencyModel.freeze();
         }
     }
 
@@ -256,21 +1107,54 @@ public class RandomWriter implements TextProcessor {
      * @param length int representing the desired length of the output text
      */
     private void kEqualToZero(int length) throws IOException {
+        long start = RunMetrics.ENABLED ? System.nanoTime() : 0;
         for (int i = 0; i < length; i++) {
             int randomIndex = rand.nextInt(content.length());
             outputText.append(content.charAt(randomIndex));
         }
+        if (RunMetrics.ENABLED) {
+            metrics.recordGenerate(0, length, System.nanoTime() - start);
+        }
     }
 
     /**
-     * @return class variable frequencyMap of type HashMap
+     * @return HashMap copy of instance variable frequencyModel, structured as {seed: {character: frequency}}
+     * @deprecated materializes a boxed entry per follower, use getFrequencyModel() instead
      */
+    @Deprecated
     public HashMap<String, HashMap<Character, Integer>> getFrequencyMap() {
-        return frequencyMap;
+        if (frequencyModel == null) {
+            return new HashMap<>();
+        }
+        return frequencyModel.toFrequencyMap();
+    }
+
+    /**
+     * Use an existing model, for example one shared with other writers, as frequencyModel
+     *
+     * @param model FrequencyModel to generate from
+     */
+    void setFrequencyModel(FrequencyModel model) {
+        frequencyModel = model;
+        k = model.getK();
+    }
+
+    /**
+     * @return instance variable frequencyModel of type FrequencyModel, or null before createFrequency is called
+     */
+    public FrequencyModel getFrequencyModel() {
+        return frequencyModel;
+    }
+
+    /**
+     * @return RunMetrics of this writer, only filled in when metrics are enabled
+     */
+    public RunMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * @return class variable content of type String
+     * @return instance variable content of type String
      */
     public String getContent() {
         return content.toString();
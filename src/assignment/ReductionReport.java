@@ -0,0 +1,135 @@
+package assignment;
+
+import java.util.Locale;
+
+/**
+ * How much memory a pruned or quantized model saves and how far its follower distributions moved from the full model
+ *
+ * Every seed of the full model is weighted by how often it occurs, so the numbers describe the text as it is
+ * generated rather than the long tail of rare seeds:
+ * - coverage: the share of occurrences whose seed is still in the reduced model
+ * - total variation: half the summed absolute difference between the full and reduced follower probabilities of
+ *   a seed, 0 for identical distributions and 1 for disjoint ones, counting 1 for seeds that were dropped
+ * - KL divergence: of the reduced distribution from the full one in bits, over the kept seeds that kept all their
+ *   followers, since it is infinite for a seed that lost one
+ */
+public class ReductionReport {
+    private final long fullBytes;
+    private final long reducedBytes;
+    private final int fullSeeds;
+    private final int reducedSeeds;
+    private final double coverage;
+    private final double totalVariation;
+    private final double divergence;
+
+    private ReductionReport(long fullBytes, long reducedBytes, int fullSeeds, int reducedSeeds, double coverage,
+                            double totalVariation, double divergence) {
+        this.fullBytes = fullBytes;
+        this.reducedBytes = reducedBytes;
+        this.fullSeeds = fullSeeds;
+        this.reducedSeeds = reducedSeeds;
+        this.coverage = coverage;
+        this.totalVariation = totalVariation;
+        this.divergence = divergence;
+    }
+
+    /**
+     * Compare a reduced model with the full model it was made from
+     *
+     * @param full         CompactFrequencyModel holding every count
+     * @param reduced      FrequencyModel made from full by pruning, quantizing or both
+     * @param reducedBytes long representing the estimated heap size of the reduced model
+     * @return ReductionReport of the comparison
+     */
+    public static ReductionReport compare(CompactFrequencyModel full, FrequencyModel reduced, long reducedBytes) {
+        long occurrences = 0;
+        long kept = 0;
+        double variation = 0;
+        double divergence = 0;
+        long divergenceWeight = 0;
+
+        for (int seedId = 0; seedId < full.getSeedCount(); seedId++) {
+            int total = full.getTotalFrequency(seedId);
+            occurrences += total;
+            int reducedId = reduced.getSeedId(full.getSeed(seedId));
+            if (reducedId == -1) {
+                variation += total;
+                continue;
+            }
+            kept += total;
+
+            //followers of both models are sorted by character, so one merge pass pairs them up
+            int reducedTotal = reduced.getTotalFrequency(reducedId);
+            int count = full.getFollowerCount(seedId);
+            int reducedCount = reduced.getFollowerCount(reducedId);
+            double difference = 0;
+            double seedDivergence = 0;
+            boolean complete = true;
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                double p = (double) full.getFrequency(seedId, i) / total;
+                char follower = full.getFollower(seedId, i);
+                while (j < reducedCount && reduced.getFollower(reducedId, j) < follower) {
+                    difference += (double) reduced.getFrequency(reducedId, j++) / reducedTotal;
+                }
+                if (j < reducedCount && reduced.getFollower(reducedId, j) == follower) {
+                    double q = (double) reduced.getFrequency(reducedId, j++) / reducedTotal;
+                    difference += Math.abs(p - q);
+                    seedDivergence += p * Math.log(p / q) / Math.log(2);
+                } else {
+                    difference += p;
+                    complete = false;
+                }
+            }
+            while (j < reducedCount) {
+                difference += (double) reduced.getFrequency(reducedId, j++) / reducedTotal;
+            }
+
+            variation += total * difference / 2;
+            if (complete) {
+                divergence += total * seedDivergence;
+                divergenceWeight += total;
+            }
+        }
+
+        return new ReductionReport(full.estimatedBytes(), reducedBytes, full.getSeedCount(), reduced.getSeedCount(),
+                occurrences == 0 ? 1 : (double) kept / occurrences, occurrences == 0 ? 0 : variation / occurrences,
+                divergenceWeight == 0 ? 0 : divergence / divergenceWeight);
+    }
+
+    /**
+     * @return long representing the estimated bytes saved by the reduced model
+     */
+    public long getBytesSaved() {
+        return fullBytes - reducedBytes;
+    }
+
+    /**
+     * @return double representing the share of occurrences whose seed was kept, from 0 to 1
+     */
+    public double getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * @return double representing the occurrence-weighted total variation distance, from 0 to 1
+     */
+    public double getTotalVariation() {
+        return totalVariation;
+    }
+
+    /**
+     * @return double representing the occurrence-weighted KL divergence in bits over the seeds that kept every follower
+     */
+    public double getDivergence() {
+        return divergence;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Model reduced from %d to %d seeds and %d to %d bytes (%.1f%% saved); "
+                        + "seed coverage %.4f, total variation %.4f, KL divergence %.4f bits.",
+                fullSeeds, reducedSeeds, fullBytes, reducedBytes, fullBytes == 0 ? 0 : 100.0 * getBytesSaved() / fullBytes,
+                coverage, totalVariation, divergence);
+    }
+}
@@ -0,0 +1,170 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.random.RandomGenerator;
+
+/**
+ * FrequencyModel whose calls are answered by a ShardServer over a local socket, to test a ShardedFrequencyModel
+ * whose shards live in other processes
+ *
+ * Every call is one request and one reply, made under a lock since the connection is shared. The level and seed
+ * count are asked once when connecting. A broken connection surfaces as an UncheckedIOException, since the
+ * FrequencyModel methods cannot throw IOException.
+ */
+public class RemoteShard implements FrequencyModel, Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int k;
+    private final int seedCount;
+
+    /**
+     * @param port int representing the port of a ShardServer on this machine
+     */
+    public RemoteShard(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        k = requestInt(ShardServer.K);
+        seedCount = requestInt(ShardServer.SEED_COUNT);
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return seedCount;
+    }
+
+    /**
+     * @return long representing the total amount of seed occurrences in the shard
+     */
+    public synchronized long getOccurrenceCount() {
+        try {
+            out.writeByte(ShardServer.OCCURRENCES);
+            out.flush();
+            return in.readLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public synchronized int getSeedId(CharSequence text, int offset) {
+        try {
+            out.writeByte(ShardServer.SEED_ID);
+            for (int i = 0; i < k; i++) {
+                out.writeChar(text.charAt(offset + i));
+            }
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public synchronized String getSeed(int seedId) {
+        try {
+            out.writeByte(ShardServer.SEED);
+            out.writeInt(seedId);
+            out.flush();
+            char[] seed = new char[k];
+            for (int i = 0; i < k; i++) {
+                seed[i] = in.readChar();
+            }
+            return new String(seed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        return requestInt(ShardServer.FOLLOWER_COUNT, seedId);
+    }
+
+    @Override
+    public synchronized char getFollower(int seedId, int index) {
+        try {
+            out.writeByte(ShardServer.FOLLOWER);
+            out.writeInt(seedId);
+            out.writeInt(index);
+            out.flush();
+            return in.readChar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        return requestInt(ShardServer.FREQUENCY, seedId, index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        return requestInt(ShardServer.TOTAL_FREQUENCY, seedId);
+    }
+
+    @Override
+    public synchronized int sample(int seedId, RandomGenerator rand) {
+        try {
+            out.writeByte(ShardServer.SAMPLE);
+            out.writeInt(seedId);
+            out.writeLong(rand.nextLong());
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        return requestInt(ShardServer.TRANSITION, seedId, index);
+    }
+
+    @Override
+    public synchronized int getRandomSeed(RandomGenerator rand) {
+        try {
+            out.writeByte(ShardServer.RANDOM_SEED);
+            out.writeLong(rand.nextLong());
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    //send an operation with int arguments and read an int reply
+    private synchronized int requestInt(byte operation, int... arguments) {
+        try {
+            out.writeByte(operation);
+            for (int argument : arguments) {
+                out.writeInt(argument);
+            }
+            out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard connection failed.", e);
+        }
+    }
+}
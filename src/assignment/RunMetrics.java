@@ -0,0 +1,192 @@
+package assignment;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Timings and counters of one RandomWriter run: reading, building, generating and writing
+ *
+ * Collection is switched on with the system property randomwriter.metrics=true. The flag is a static final
+ * constant, so when it is off the JIT removes every timing call and RandomWriter runs exactly as without metrics.
+ * When it is on, main registers the metrics as an MXBean under assignment:type=RandomWriter,run=N for the length
+ * of the run and prints them as one JSON line at the end.
+ *
+ * Counters are atomic, so writers that share one RandomWriter from several threads all add to the same totals.
+ */
+public class RunMetrics implements RunMetricsMXBean {
+    static final boolean ENABLED = Boolean.getBoolean("randomwriter.metrics");
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong readNanos = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+    private volatile int distinctSeeds;
+    private volatile long pairs;
+    private final AtomicLong charsGenerated = new AtomicLong();
+    private final AtomicLong generateNanos = new AtomicLong();
+    private final AtomicLong reseeds = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private ObjectName name;
+
+    /**
+     * @param bytes long representing the size of the source read
+     * @param nanos long representing the time reading took
+     */
+    void recordRead(long bytes, long nanos) {
+        bytesRead.addAndGet(bytes);
+        readNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @param model FrequencyModel that was built or loaded
+     * @param nanos long representing the time building took
+     */
+    void recordBuild(FrequencyModel model, long nanos) {
+        buildNanos.addAndGet(nanos);
+
+        //a lazy model has not counted its seeds yet, counting them here would undo what it saves
+        if (model instanceof LazyFrequencyModel) {
+            return;
+        }
+        long followers = 0;
+        if (model instanceof CompactFrequencyModel) {
+            followers = ((CompactFrequencyModel) model).followers.length;
+        } else {
+            for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+                followers += model.getFollowerCount(seedId);
+            }
+        }
+        distinctSeeds = model.getSeedCount();
+        pairs = followers;
+    }
+
+    /**
+     * @param generator TextGenerator that finished generating
+     * @param chars     long representing the amount of characters generated
+     * @param nanos     long representing the time generating took
+     */
+    void recordGenerate(TextGenerator generator, long chars, long nanos) {
+        recordGenerate(generator.getReseedCount(), chars, nanos);
+    }
+
+    /**
+     * @param reseedCount long representing how often the generator jumped to a random seed
+     * @param chars       long representing the amount of characters or bytes generated
+     * @param nanos       long representing the time generating took
+     */
+    void recordGenerate(long reseedCount, long chars, long nanos) {
+        charsGenerated.addAndGet(chars);
+        generateNanos.addAndGet(nanos);
+        reseeds.addAndGet(reseedCount);
+    }
+
+    /**
+     * @param bytes long representing the amount of encoded bytes written
+     * @param nanos long representing the time writing took
+     */
+    void recordWrite(long bytes, long nanos) {
+        bytesWritten.addAndGet(bytes);
+        writeNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Register these metrics with the platform MBean server under a name of their own
+     */
+    synchronized void register() {
+        try {
+            name = new ObjectName("assignment:type=RandomWriter,run=" + RUNS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Metrics could not be registered: " + e.getMessage());
+            name = null;
+        }
+    }
+
+    /**
+     * Remove these metrics from the platform MBean server if they were registered
+     */
+    synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Metrics could not be unregistered: " + e.getMessage());
+        }
+        name = null;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public double getReadBytesPerSecond() {
+        return rate(bytesRead.get(), readNanos.get());
+    }
+
+    @Override
+    public double getBuildMillis() {
+        return buildNanos.get() / 1e6;
+    }
+
+    @Override
+    public int getDistinctSeeds() {
+        return distinctSeeds;
+    }
+
+    @Override
+    public double getAverageFollowersPerSeed() {
+        return distinctSeeds == 0 ? 0 : (double) pairs / distinctSeeds;
+    }
+
+    @Override
+    public long getCharsGenerated() {
+        return charsGenerated.get();
+    }
+
+    @Override
+    public double getGeneratedCharsPerSecond() {
+        return rate(charsGenerated.get(), generateNanos.get());
+    }
+
+    @Override
+    public long getReseeds() {
+        return reseeds.get();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public double getWriteBytesPerSecond() {
+        return rate(bytesWritten.get(), writeNanos.get());
+    }
+
+    /**
+     * @return String holding every metric as one line of JSON
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"bytesRead\":%d,\"readBytesPerSecond\":%.1f,\"buildMillis\":%.3f,"
+                        + "\"distinctSeeds\":%d,\"averageFollowersPerSeed\":%.3f,\"charsGenerated\":%d,"
+                        + "\"generatedCharsPerSecond\":%.1f,\"reseeds\":%d,\"bytesWritten\":%d,\"writeBytesPerSecond\":%.1f}",
+                getBytesRead(), getReadBytesPerSecond(), getBuildMillis(), getDistinctSeeds(),
+                getAverageFollowersPerSeed(), getCharsGenerated(), getGeneratedCharsPerSecond(), getReseeds(),
+                getBytesWritten(), getWriteBytesPerSecond());
+    }
+
+    private static double rate(long amount, long nanos) {
+        return nanos == 0 ? 0 : amount * 1e9 / nanos;
+    }
+}
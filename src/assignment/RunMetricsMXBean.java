@@ -0,0 +1,57 @@
+package assignment;
+
+/**
+ * Management interface of RunMetrics, as seen from JMX clients such as jconsole
+ */
+public interface RunMetricsMXBean {
+
+    /**
+     * @return long representing the size in bytes of the source files read
+     */
+    long getBytesRead();
+
+    /**
+     * @return double representing the bytes of source read and decoded per second
+     */
+    double getReadBytesPerSecond();
+
+    /**
+     * @return double representing the milliseconds spent building or loading the model
+     */
+    double getBuildMillis();
+
+    /**
+     * @return int representing the amount of distinct seeds of the model
+     */
+    int getDistinctSeeds();
+
+    /**
+     * @return double representing the average amount of distinct followers of a seed
+     */
+    double getAverageFollowersPerSeed();
+
+    /**
+     * @return long representing the amount of characters generated
+     */
+    long getCharsGenerated();
+
+    /**
+     * @return double representing the characters generated per second
+     */
+    double getGeneratedCharsPerSecond();
+
+    /**
+     * @return long representing how often generation jumped to a random seed after a seed without followers
+     */
+    long getReseeds();
+
+    /**
+     * @return long representing the amount of encoded bytes written to output files
+     */
+    long getBytesWritten();
+
+    /**
+     * @return double representing the bytes written per second
+     */
+    double getWriteBytesPerSecond();
+}
@@ -0,0 +1,201 @@
+package assignment;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Writes one long output made of independent segments that are generated in parallel
+ *
+ * Every segment is a chain of its own that starts from a random seed, with a random stream split from one master
+ * stream in segment order, or seeded from it when its algorithm cannot split. The text therefore only depends on the
+ * master seed, its algorithm and the amount of segments, never on how many threads generate it. Segments are
+ * generated and encoded in chunks by the thread that generates them and written at their byte offset in the output
+ * file as soon as every segment before them is done; at most two encoded segments per thread, and no more than fit
+ * in WINDOW_BYTES, are held in memory at once.
+ */
+public class SegmentedWriter {
+    //characters generated before they are encoded
+    static final int CHUNK_SIZE = 1 << 13;
+
+    //bytes the encoded segments waiting to be written may take, unless a single segment is larger
+    static final long WINDOW_BYTES = 1L << 28;
+
+    private final Function<RandomGenerator, TextGenerator> generators;
+    private final Charset charset;
+    private final int segments;
+    private final long seed;
+    private final RandomGeneratorFactory<RandomGenerator> randomFactory;
+    private final AtomicLong reseeds = new AtomicLong();
+
+    /**
+     * @param generators Function creating a generator that draws from the given random stream
+     * @param charset    Charset the output is encoded in
+     * @param segments   int representing the amount of independent segments the output is split into
+     * @param seed       long representing the master seed every segment's random stream is split from
+     */
+    public SegmentedWriter(Function<RandomGenerator, TextGenerator> generators, Charset charset, int segments,
+                           long seed) {
+        this(generators, charset, segments, null, seed);
+    }
+
+    /**
+     * @param generators    Function creating a generator that draws from the given random stream
+     * @param charset       Charset the output is encoded in
+     * @param segments      int representing the amount of independent segments the output is split into
+     * @param randomFactory RandomGeneratorFactory of the master stream, SplittableRandom if null
+     * @param seed          long representing the master seed every segment's random stream is split from
+     */
+    public SegmentedWriter(Function<RandomGenerator, TextGenerator> generators, Charset charset, int segments,
+                           RandomGeneratorFactory<RandomGenerator> randomFactory, long seed) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Output needs at least one segment.");
+        }
+        this.generators = generators;
+        this.charset = charset;
+        this.segments = segments;
+        this.seed = seed;
+        this.randomFactory = randomFactory;
+    }
+
+    /**
+     * Generate length characters and write them to path, replacing its contents
+     *
+     * @param path    Path of the output file
+     * @param length  long representing the amount of characters over all segments
+     * @param threads int representing the amount of threads generating segments
+     * @return long representing the amount of bytes written
+     */
+    public long write(Path path, long length, int threads) throws IOException {
+        if (length / segments >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments must be shorter than 2^31 characters.");
+        }
+
+        //split every stream up front, so segment i always gets the same stream
+        RandomGenerator master = randomFactory == null ? new SplittableRandom(seed) : randomFactory.create(seed);
+        RandomGenerator[] streams = new RandomGenerator[segments];
+        for (int segment = 0; segment < segments; segment++) {
+            streams[segment] = master instanceof RandomGenerator.SplittableGenerator
+                    ? ((RandomGenerator.SplittableGenerator) master).split() : randomFactory.create(master.nextLong());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, segments)));
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        double bytesPerChar = charset.newEncoder().maxBytesPerChar();
+        long segmentBytes = (long) Math.ceil(segmentLength(length, 0) * bytesPerChar);
+        int window = (int) Math.max(1, Math.min(2L * Math.max(1, threads), WINDOW_BYTES / Math.max(1, segmentBytes)));
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int submitted = 0;
+            for (int segment = 0; segment < segments; segment++) {
+                while (submitted < segments && submitted < segment + window) {
+                    int next = submitted++;
+                    pending.add(executor.submit(() -> encode(streams[next], segmentLength(length, next))));
+                }
+
+                //the offset of a segment is the size of everything before it, known once they are all done
+                ByteBuffer bytes = take(pending.remove());
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return position;
+    }
+
+    /**
+     * @return long representing how often the generators of all segments written so far jumped to a random seed
+     */
+    public long getReseedCount() {
+        return reseeds.get();
+    }
+
+    /**
+     * @param length  long representing the amount of characters over all segments
+     * @param segment int representing the index of a segment
+     * @return int representing the amount of characters of that segment, the first ones getting one extra
+     */
+    int segmentLength(long length, int segment) {
+        return (int) (length / segments + (segment < length % segments ? 1 : 0));
+    }
+
+    //generate a segment one chunk at a time, so only its encoded bytes are held and never the text itself
+    ByteBuffer encode(RandomGenerator rand, int length) {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8,
+                (long) Math.ceil(length * (double) encoder.averageBytesPerChar()) + 16));
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        TextGenerator generator = length > 0 ? generators.apply(rand) : null;
+
+        int generated = 0;
+        boolean last = false;
+        while (!last) {
+            int count = Math.min(chars.remaining(), length - generated);
+            if (count > 0) {
+                generator.fill(chars.array(), chars.position(), count);
+            }
+            chars.position(chars.position() + count);
+            generated += count;
+            last = generated == length;
+
+            //a high surrogate at the end of a chunk is kept and encoded together with the next chunk
+            chars.flip();
+            while (encoder.encode(chars, bytes, last).isOverflow()) {
+                bytes = grow(bytes);
+            }
+            chars.compact();
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            bytes = grow(bytes);
+        }
+
+        if (generator != null) {
+            reseeds.addAndGet(generator.getReseedCount());
+        }
+        return bytes.flip();
+    }
+
+    private static ByteBuffer grow(ByteBuffer bytes) {
+        ByteBuffer larger = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, 2L * bytes.capacity() + 16));
+        return larger.put(bytes.flip());
+    }
+
+    private static ByteBuffer take(Future<ByteBuffer> segment) throws IOException {
+        try {
+            return segment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a segment.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Serves one shard of a ShardedFrequencyModel over a local socket, standing in for a shard living in another
+ * process or on another machine; RemoteShard is the other end
+ *
+ * The server only listens on the loopback address. Every connection gets a thread of its own and sends requests
+ * of one operation byte plus its arguments, each answered by one value. Draws that need a RandomGenerator are sent
+ * as a long drawn by the client, which seeds the generator used for that one draw, so the client's random stream
+ * alone decides the result.
+ *
+ * Usage: java assignment.ShardServer modelFile port
+ */
+public class ShardServer implements Closeable {
+    static final byte K = 1;
+    static final byte SEED_COUNT = 2;
+    static final byte OCCURRENCES = 3;
+    static final byte SEED_ID = 4;
+    static final byte SEED = 5;
+    static final byte FOLLOWER_COUNT = 6;
+    static final byte FOLLOWER = 7;
+    static final byte FREQUENCY = 8;
+    static final byte TOTAL_FREQUENCY = 9;
+    static final byte SAMPLE = 10;
+    static final byte TRANSITION = 11;
+    static final byte RANDOM_SEED = 12;
+
+    private final FrequencyModel model;
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+
+    /**
+     * Start serving model
+     *
+     * @param model FrequencyModel of the shard, usually frozen or mapped from a model file
+     * @param port  int representing the port to listen on, 0 for any free port
+     */
+    public ShardServer(FrequencyModel model, int port) throws IOException {
+        this.model = model;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptThread = new Thread(this::accept, "shard-server-" + serverSocket.getLocalPort());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Expected a model file and a port.");
+            throw new IllegalArgumentException();
+        }
+        int port;
+        try {
+            port = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("Port not an integer.");
+            throw new IllegalArgumentException();
+        }
+
+        ShardServer server = new ShardServer(ModelFile.load(Paths.get(args[0])), port);
+        System.out.println("Serving " + args[0] + " on port " + server.getPort() + ".");
+        server.acceptThread.join();
+    }
+
+    /**
+     * @return int representing the port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stop accepting connections, connections that are open are closed by their clients
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "shard-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (SocketException e) {
+                //the server socket was closed
+                return;
+            } catch (IOException e) {
+                System.err.println("Error while accepting a shard connection.");
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                respond(in.readByte(), in, out);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            //the client closed the connection
+        } catch (IOException e) {
+            System.err.println("Error while serving a shard connection.");
+        }
+    }
+
+    private void respond(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case K:
+                out.writeInt(model.getK());
+                break;
+            case SEED_COUNT:
+                out.writeInt(model.getSeedCount());
+                break;
+            case OCCURRENCES:
+                long total = 0;
+                for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+                    total += model.getTotalFrequency(seedId);
+                }
+                out.writeLong(total);
+                break;
+            case SEED_ID:
+                char[] seed = new char[model.getK()];
+                for (int i = 0; i < seed.length; i++) {
+                    seed[i] = in.readChar();
+                }
+                out.writeInt(model.getSeedId(new String(seed)));
+                break;
+            case SEED:
+                out.writeChars(model.getSeed(in.readInt()));
+                break;
+            case FOLLOWER_COUNT:
+                out.writeInt(model.getFollowerCount(in.readInt()));
+                break;
+            case FOLLOWER:
+                out.writeChar(model.getFollower(in.readInt(), in.readInt()));
+                break;
+            case FREQUENCY:
+                out.writeInt(model.getFrequency(in.readInt(), in.readInt()));
+                break;
+            case TOTAL_FREQUENCY:
+                out.writeInt(model.getTotalFrequency(in.readInt()));
+                break;
+            case SAMPLE:
+                int seedId = in.readInt();
+                out.writeInt(model.sample(seedId, new SplittableRandom(in.readLong())));
+                break;
+            case TRANSITION:
+                out.writeInt(model.getTransition(in.readInt(), in.readInt()));
+                break;
+            case RANDOM_SEED:
+                out.writeInt(model.getRandomSeed(new SplittableRandom(in.readLong())));
+                break;
+            default:
+                throw new IOException("Unknown shard operation " + operation + ".");
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+
+/**
+ * FrequencyModel split by seed hash into shards, for models too large for one heap
+ *
+ * Every seed belongs to exactly one shard, chosen from the high bits of its hash (the low bits pick its slot in the
+ * shard's own table). A shard is an ordinary FrequencyModel holding only its seeds: a CompactFrequencyModel built
+ * with buildShard(), a BufferFrequencyModel mapped from a model file, or a RemoteShard reaching a model served by
+ * another process through ShardServer. Each shard can be built, saved and loaded on its own, by separate processes.
+ *
+ * Seed ids of this model are the ids of the first shard, then those of the second shard shifted by the size of the
+ * first and so on, so they run from 0 to getSeedCount() - 1 and every call is routed to the shard owning the id.
+ * The next seed after a character usually lives in another shard, which the shard's own transitions cannot point
+ * to. When every shard is in this process, the constructor looks up the next seed of every pair once and keeps the
+ * global ids in a table of its own, 4 bytes per pair and per seed, so a step stays free of allocation. With a
+ * RemoteShard the table would take a request per pair to fill, so getTransition() builds the characters of the next
+ * seed and looks them up in the owning shard on every step instead, which is several times slower.
+ */
+public class ShardedFrequencyModel implements FrequencyModel {
+    private final FrequencyModel[] shards;
+    private final int k;
+
+    //first seed id of every shard plus the total amount of seeds, and the running totals of occurrences per shard
+    private final int[] base;
+    private final long[] occurrences;
+
+    //index of the first pair of every global seed id plus the total amount of pairs, and the global id of the seed
+    //each pair leads to, or null when a shard is remote
+    private final int[] pairStart;
+    private final int[] transitions;
+
+    /**
+     * @param shards FrequencyModel[] holding shard i of the model at index i, all built with the same k
+     */
+    public ShardedFrequencyModel(FrequencyModel... shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("A sharded model needs at least one shard.");
+        }
+        this.shards = shards.clone();
+        this.k = shards[0].getK();
+        this.base = new int[shards.length + 1];
+        this.occurrences = new long[shards.length];
+
+        long total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].getK() != k) {
+                throw new IllegalArgumentException("Shards of different k cannot be combined.");
+            }
+            base[i + 1] = base[i] + shards[i].getSeedCount();
+            total += occurrences(shards[i]);
+            occurrences[i] = total;
+        }
+
+        boolean local = true;
+        for (FrequencyModel shard : shards) {
+            local &= !(shard instanceof RemoteShard);
+        }
+        if (local && k > 0) {
+            pairStart = new int[getSeedCount() + 1];
+            for (int seedId = 0; seedId < getSeedCount(); seedId++) {
+                pairStart[seedId + 1] = pairStart[seedId] + getFollowerCount(seedId);
+            }
+            transitions = new int[pairStart[getSeedCount()]];
+            resolveTransitions();
+        } else {
+            pairStart = null;
+            transitions = null;
+        }
+    }
+
+    //look up the seed every pair leads to, reusing one buffer that holds the last k - 1 characters of the seed
+    private void resolveTransitions() {
+        char[] next = new char[k];
+        CharBuffer nextSeed = CharBuffer.wrap(next);
+        for (int seedId = 0; seedId < getSeedCount(); seedId++) {
+            getSeed(seedId).getChars(1, k, next, 0);
+            for (int index = 0; index < getFollowerCount(seedId); index++) {
+                next[k - 1] = getFollower(seedId, index);
+                transitions[pairStart[seedId] + index] = getSeedId(nextSeed, 0);
+            }
+        }
+    }
+
+    /**
+     * Build every shard in this process
+     *
+     * @param source String representing the input text
+     * @param k      int representing the level of analysis
+     * @param shards int representing the amount of shards
+     * @return ShardedFrequencyModel holding frozen in-process shards
+     */
+    public static ShardedFrequencyModel build(String source, int k, int shards) {
+        char[] text = source.toCharArray();
+        FrequencyModel[] models = new FrequencyModel[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            models[shard] = buildShard(text, k, shard, shards);
+        }
+        return new ShardedFrequencyModel(models);
+    }
+
+    /**
+     * Build one shard from a file, for example in a process of its own that saves it with ModelFile.save
+     * The whole text passes through the builder, but only the characters of the shard's seeds are kept afterwards.
+     *
+     * @param path    Path of the source file
+     * @param charset Charset the file is encoded in
+     * @param k       int representing the level of analysis
+     * @param shard   int representing the index of the shard to build
+     * @param shards  int representing the amount of shards
+     * @return CompactFrequencyModel that is frozen and holds the seeds of the shard
+     */
+    public static CompactFrequencyModel buildShard(Path path, Charset charset, int k, int shard, int shards)
+            throws IOException {
+        checkShard(shard, shards);
+        CompactFrequencyModel.Builder builder = new CompactFrequencyModel.Builder(k,
+                (int) Math.min(Files.size(path), Integer.MAX_VALUE - 8)).restrictTo(shard, shards);
+        CorpusReader.read(path, charset, builder::append);
+        return builder.build().prune(1, 1).freeze();
+    }
+
+    private static CompactFrequencyModel buildShard(char[] text, int k, int shard, int shards) {
+        checkShard(shard, shards);
+        CompactFrequencyModel.Builder builder = new CompactFrequencyModel.Builder(text, k).restrictTo(shard, shards);
+        builder.addRange(0, Math.max(0, text.length - k));
+        return builder.build().prune(1, 1).freeze();
+    }
+
+    /**
+     * Map every shard file, given in shard order, and combine them
+     *
+     * @param paths Path[] of the model files of shard 0, 1 and so on
+     * @return ShardedFrequencyModel reading from the mapped files
+     */
+    public static ShardedFrequencyModel load(Path... paths) throws IOException {
+        FrequencyModel[] models = new FrequencyModel[paths.length];
+        for (int shard = 0; shard < paths.length; shard++) {
+            models[shard] = ModelFile.load(paths[shard]);
+
+            //a file saved for another shard or shard count would send lookups to the wrong place
+            if (models[shard].getSeedCount() > 0
+                    && shardOf(models[shard].getSeed(0), 0, models[shard].getK(), paths.length) != shard) {
+                throw new IOException("Model file " + paths[shard] + " is not shard " + shard + " of " + paths.length + ".");
+            }
+        }
+        return new ShardedFrequencyModel(models);
+    }
+
+    /**
+     * @param text   CharSequence holding a seed
+     * @param offset int representing the index of the first character of the seed
+     * @param k      int representing the length of the seed
+     * @param shards int representing the amount of shards
+     * @return int representing the index of the shard that owns the seed
+     */
+    public static int shardOf(CharSequence text, int offset, int k, int shards) {
+        return shardOf(CompactFrequencyModel.hash(text, offset, k), shards);
+    }
+
+    //scale the hash to [0, shards) with its high bits, which are independent of the table slot a shard uses
+    static int shardOf(int hash, int shards) {
+        return (int) (((hash & 0xFFFFFFFFL) * shards) >>> 32);
+    }
+
+    /**
+     * @param shard int representing the index of a shard
+     * @return FrequencyModel holding the seeds of that shard
+     */
+    public FrequencyModel getShard(int shard) {
+        return shards[shard];
+    }
+
+    /**
+     * @return int representing the amount of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getSeedCount() {
+        return base[shards.length];
+    }
+
+    @Override
+    public int getSeedId(CharSequence text, int offset) {
+        int shard = shardOf(text, offset, k, shards.length);
+        int seedId = shards[shard].getSeedId(text, offset);
+        return seedId == -1 ? -1 : base[shard] + seedId;
+    }
+
+    @Override
+    public String getSeed(int seedId) {
+        int shard = shardOfId(seedId);
+        return shards[shard].getSeed(seedId - base[shard]);
+    }
+
+    @Override
+    public int getFollowerCount(int seedId) {
+        int shard = shardOfId(seedId);
+        return shards[shard].getFollowerCount(seedId - base[shard]);
+    }
+
+    @Override
+    public char getFollower(int seedId, int index) {
+        int shard = shardOfId(seedId);
+        return shards[shard].getFollower(seedId - base[shard], index);
+    }
+
+    @Override
+    public int getFrequency(int seedId, int index) {
+        int shard = shardOfId(seedId);
+        return shards[shard].getFrequency(seedId - base[shard], index);
+    }
+
+    @Override
+    public int getTotalFrequency(int seedId) {
+        int shard = shardOfId(seedId);
+        return shards[shard].getTotalFrequency(seedId - base[shard]);
+    }
+
+    @Override
+    public int sample(int seedId, RandomGenerator rand) {
+        int shard = shardOfId(seedId);
+        return shards[shard].sample(seedId - base[shard], rand);
+    }
+
+    @Override
+    public int getTransition(int seedId, int index) {
+        if (transitions == null) {
+            return FrequencyModel.super.getTransition(seedId, index);
+        }
+        return transitions[pairStart[seedId] + index];
+    }
+
+    @Override
+    public int getRandomSeed(RandomGenerator rand) {
+        if (getSeedCount() == 0) {
+            return -1;
+        }
+
+        //pick a shard by its share of all occurrences, then a seed of that shard by its own occurrences
+        long randomIndex = rand.nextLong(occurrences[shards.length - 1]);
+        int shard = 0;
+        while (occurrences[shard] <= randomIndex) {
+            shard++;
+        }
+        return base[shard] + shards[shard].getRandomSeed(rand);
+    }
+
+    //find the shard owning a seed id, the shards are few so a scan is enough
+    private int shardOfId(int seedId) {
+        int shard = 0;
+        while (seedId >= base[shard + 1]) {
+            shard++;
+        }
+        return shard;
+    }
+
+    //total amount of seed occurrences of a shard, asked of a remote shard in one request
+    private static long occurrences(FrequencyModel shard) {
+        if (shard instanceof RemoteShard) {
+            return ((RemoteShard) shard).getOccurrenceCount();
+        }
+        long total = 0;
+        for (int seedId = 0; seedId < shard.getSeedCount(); seedId++) {
+            total += shard.getTotalFrequency(seedId);
+        }
+        return total;
+    }
+
+    private static void checkShard(int shard, int shards) {
+        if (shards < 1 || shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("Shard must be from 0 to the amount of shards - 1.");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package assignment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Encodes characters into fixed-size byte buffers and writes them to a FileChannel while text is still being generated
+ *
+ * Memory use does not depend on how much is written: characters are encoded through one CharBuffer into
+ * BUFFER_SIZE byte buffers, and at most BUFFER_COUNT of them exist at once. With a background writer the full
+ * buffers are written by a separate thread while the caller keeps filling the next one; the caller blocks when all
+ * buffers are waiting to be written.
+ */
+public class StreamingTextWriter implements Closeable {
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int BUFFER_COUNT = 4;
+
+    //handed to the background writer to tell it that no more buffers will come
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+    private ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> full;
+    private final Thread writerThread;
+    private volatile IOException writeError;
+    private long bytesWritten;
+
+    /**
+     * Open the output file, replacing anything that was in it
+     *
+     * @param path             Path of the output file
+     * @param charset          Charset the text is encoded in
+     * @param backgroundWriter boolean representing whether full buffers are written by a separate thread
+     */
+    public StreamingTextWriter(Path path, Charset charset, boolean backgroundWriter) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        if (backgroundWriter) {
+            free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+            full = new ArrayBlockingQueue<>(BUFFER_COUNT);
+            for (int i = 1; i < BUFFER_COUNT; i++) {
+                free.add(ByteBuffer.allocate(BUFFER_SIZE));
+            }
+            writerThread = new Thread(this::writeBuffers, "text-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        } else {
+            free = null;
+            full = null;
+            writerThread = null;
+        }
+    }
+
+    /**
+     * Encode and write characters, only blocking when every buffer is full
+     *
+     * @param buffer char[] holding the characters
+     * @param offset int representing the index of the first character to write
+     * @param length int representing the amount of characters to write
+     */
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(buffer, offset, count);
+            offset += count;
+            length -= count;
+            encode(false);
+        }
+    }
+
+    /**
+     * @return long representing the amount of bytes handed to the channel so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Write everything that is still buffered, wait for the background writer and close the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                flushBytes();
+            }
+            flushBytes();
+
+            if (writerThread != null) {
+                put(full, END);
+                writerThread.join();
+                checkWriteError();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer thread.");
+        } finally {
+            //if anything above failed before END was taken, the writer thread would wait for buffers forever
+            if (writerThread != null && writerThread.isAlive()) {
+                writerThread.interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+
+        //a surrogate cut off at the end of the input stays in chars until its other half arrives
+        CoderResult result;
+        while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+            flushBytes();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        chars.compact();
+    }
+
+    private void flushBytes() throws IOException {
+        bytes.flip();
+        bytesWritten += bytes.remaining();
+
+        if (writerThread == null) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+            return;
+        }
+
+        checkWriteError();
+        put(full, bytes);
+        try {
+            bytes = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer.");
+        }
+    }
+
+    //runs on the background thread until END arrives, after an error it keeps recycling buffers so the caller never hangs
+    private void writeBuffers() {
+        try {
+            for (ByteBuffer buffer = full.take(); buffer != END; buffer = full.take()) {
+                try {
+                    while (writeError == null && buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } catch (IOException e) {
+                    writeError = e;
+                }
+                buffer.clear();
+                free.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            writeError = new InterruptedIOException("Writer thread interrupted.");
+        }
+    }
+
+    private void checkWriteError() throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private static void put(BlockingQueue<ByteBuffer> queue, ByteBuffer buffer) throws InterruptedIOException {
+        try {
+            queue.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing a buffer to the writer thread.");
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package assignment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Suffix array with LCP array over a source text, from which the model for any level of analysis k can be read
+ * without going back to the text
+ *
+ * All suffixes that start with the same k characters are next to each other in the suffix array, and within such a
+ * group they are sorted by the character that follows those k characters. A seed is therefore a group of suffixes
+ * and its followers are runs inside the group, both found with the LCP array. The array is built in O(n log n) by
+ * prefix doubling with counting sorts and takes 10 bytes per character of source (text, suffix array and LCP array)
+ * whatever k is queried.
+ */
+public class SuffixArrayIndex {
+    private final char[] text;
+    private final int[] suffixArray;
+    private final int[] lcp;
+
+    /**
+     * Build the suffix array and LCP array of source
+     *
+     * @param source String representing the input text
+     */
+    public SuffixArrayIndex(String source) {
+        text = source.toCharArray();
+        suffixArray = buildSuffixArray(text);
+        lcp = buildLcp(text, suffixArray);
+    }
+
+    /**
+     * @return int representing the length of the indexed text
+     */
+    public int length() {
+        return text.length;
+    }
+
+    /**
+     * @param from int representing the index of the first character
+     * @param to   int representing the index after the last character
+     * @return String holding the characters of the indexed text in [from, to)
+     */
+    public String substring(int from, int to) {
+        return new String(text, from, to - from);
+    }
+
+    /**
+     * Get a view of the index as the model for level k, which answers queries straight from the suffix array
+     * Seed ids of the view are ranks in the suffix array, so they are not numbered from 0 to getSeedCount() - 1
+     *
+     * @param k int representing the level of analysis
+     * @return FrequencyModel reading seeds and followers from the index
+     */
+    public FrequencyModel getModel(int k) {
+        checkLevel(k);
+        return new View(k);
+    }
+
+    /**
+     * Build the compact model for level k in one pass over the suffix array, without hashing every position
+     * of the text again
+     *
+     * @param k int representing the level of analysis
+     * @return CompactFrequencyModel with the same seeds and counts as CompactFrequencyModel.build(source, k)
+     */
+    public CompactFrequencyModel buildModel(int k) {
+        checkLevel(k);
+        CompactFrequencyModel.Builder builder = new CompactFrequencyModel.Builder(text, k);
+
+        //every run of suffixes sharing the same k + 1 characters is one follower of the group's seed
+        int seedId = 0;
+        for (int rank = 0; rank < suffixArray.length; rank++) {
+            int position = suffixArray[rank];
+            if (text.length - position <= k) {
+                continue;
+            }
+            if (isSeedStart(rank, k)) {
+                seedId = builder.intern(position);
+            }
+            int runEnd = rank + 1;
+            while (runEnd < suffixArray.length && lcp[runEnd] >= k + 1) {
+                runEnd++;
+            }
+            builder.add(seedId, text[position + k], runEnd - rank);
+            rank = runEnd - 1;
+        }
+        return builder.build();
+    }
+
+    //a seed starts at the first suffix of its group that is longer than k, the suffix of length k sorts before it
+    private boolean isSeedStart(int rank, int k) {
+        if (text.length - suffixArray[rank] <= k) {
+            return false;
+        }
+        return rank == 0 || lcp[rank] < k || text.length - suffixArray[rank - 1] == k;
+    }
+
+    private void checkLevel(int k) {
+        if (k < 0 || k >= text.length) {
+            throw new IllegalArgumentException("k must be between 0 and the length of the text - 1.");
+        }
+    }
+
+    //compare the suffix at position with the pattern text[from, from + k), only over the first k characters
+    private int comparePrefix(int position, CharSequence pattern, int from, int k) {
+        for (int i = 0; i < k; i++) {
+            if (position + i == text.length) {
+                return -1;
+            }
+            int diff = text[position + i] - pattern.charAt(from + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    //binary search the first rank whose suffix does not sort before the pattern, or after the pattern when upper is true
+    private int bound(CharSequence pattern, int from, int k, boolean upper) {
+        int low = 0;
+        int high = suffixArray.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(suffixArray[mid], pattern, from, k);
+            if (cmp < 0 || upper && cmp == 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sort all suffixes of text by prefix doubling: after round h the suffixes are sorted by their first 2^h
+     * characters, using a counting sort by the class of the second half followed by a stable one by the first half
+     * A sentinel smaller than every character is appended so the cyclic shifts order like the suffixes
+     */
+    static int[] buildSuffixArray(char[] text) {
+        int n = text.length + 1;
+        int[] order = new int[n];
+        int[] classes = new int[n];
+        int[] count = new int[Math.max(Character.MAX_VALUE + 2, n)];
+
+        //sort the single characters, the sentinel at position n - 1 gets symbol 0
+        for (int i = 0; i < n; i++) {
+            count[symbol(text, i)]++;
+        }
+        for (int i = 1; i < count.length; i++) {
+            count[i] += count[i - 1];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            order[--count[symbol(text, i)]] = i;
+        }
+        int classCount = 1;
+        for (int i = 1; i < n; i++) {
+            if (symbol(text, order[i]) != symbol(text, order[i - 1])) {
+                classCount++;
+            }
+            classes[order[i]] = classCount - 1;
+        }
+
+        int[] shifted = new int[n];
+        int[] newClasses = new int[n];
+        for (int h = 1; h < n && classCount < n; h <<= 1) {
+            //shifting the current order left by h sorts the shifts by their second half
+            for (int i = 0; i < n; i++) {
+                shifted[i] = order[i] - h < 0 ? order[i] - h + n : order[i] - h;
+            }
+
+            //stable counting sort by the class of the first half
+            Arrays.fill(count, 0, classCount, 0);
+            for (int i = 0; i < n; i++) {
+                count[classes[shifted[i]]]++;
+            }
+            for (int i = 1; i < classCount; i++) {
+                count[i] += count[i - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                order[--count[classes[shifted[i]]]] = shifted[i];
+            }
+
+            //shifts get a new class whenever either half differs from the previous shift
+            newClasses[order[0]] = 0;
+            classCount = 1;
+            for (int i = 1; i < n; i++) {
+                int current = order[i];
+                int previous = order[i - 1];
+                if (classes[current] != classes[previous]
+                        || classes[(current + h) % n] != classes[(previous + h) % n]) {
+                    classCount++;
+                }
+                newClasses[current] = classCount - 1;
+            }
+            int[] swap = classes;
+            classes = newClasses;
+            newClasses = swap;
+        }
+
+        //drop the sentinel, which always sorts first
+        int[] suffixArray = new int[n - 1];
+        System.arraycopy(order, 1, suffixArray, 0, n - 1);
+        return suffixArray;
+    }
+
+    private static int symbol(char[] text, int i) {
+        return i == text.length ? 0 : text[i] + 1;
+    }
+
+    /**
+     * Compute lcp[rank], the length of the common prefix of the suffixes at rank - 1 and rank, in O(n) with Kasai's
+     * algorithm; lcp[0] is 0
+     */
+    static int[] buildLcp(char[] text, int[] suffixArray) {
+        int n = text.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[suffixArray[i]] = i;
+        }
+
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int position = 0; position < n; position++) {
+            if (rank[position] == 0) {
+                h = 0;
+                continue;
+            }
+            int previous = suffixArray[rank[position] - 1];
+            while (position + h < n && previous + h < n && text[position + h] == text[previous + h]) {
+                h++;
+            }
+            lcp[rank[position]] = h;
+            if (h > 0) {
+                h--;
+            }
+        }
+        return lcp;
+    }
+
+    /**
+     * Model of level k answered from the suffix array, a seed id is the rank of the first suffix of the seed's group
+     * that has a follower
+     * Lookups are binary searches, while follower queries walk the seed's group, so they cost O(occurrences of the seed)
+     */
+    private class View implements FrequencyModel {
+        private final int k;
+        private volatile int seedCount = -1;
+
+        View(int k) {
+            this.k = k;
+        }
+
+        @Override
+        public int getK() {
+            return k;
+        }
+
+        @Override
+        public int getSeedCount() {
+            if (seedCount == -1) {
+                int count = 0;
+                for (int rank = 0; rank < suffixArray.length; rank++) {
+                    if (isSeedStart(rank, k)) {
+                        count++;
+                    }
+                }
+                seedCount = count;
+            }
+            return seedCount;
+        }
+
+        @Override
+        public int getSeedId(CharSequence pattern, int offset) {
+            int low = bound(pattern, offset, k, false);
+            int high = bound(pattern, offset, k, true);
+
+            //the suffix made of exactly the seed has no follower and sorts first in the group
+            if (low < high && text.length - suffixArray[low] == k) {
+                low++;
+            }
+            return low < high ? low : -1;
+        }
+
+        @Override
+        public String getSeed(int seedId) {
+            return new String(text, suffixArray[seedId], k);
+        }
+
+        @Override
+        public int getFollowerCount(int seedId) {
+            int end = groupEnd(seedId);
+            int runs = 1;
+            for (int rank = seedId + 1; rank < end; rank++) {
+                if (lcp[rank] < k + 1) {
+                    runs++;
+                }
+            }
+            return runs;
+        }
+
+        @Override
+        public char getFollower(int seedId, int index) {
+            return text[suffixArray[runStart(seedId, index)] + k];
+        }
+
+        @Override
+        public int getFrequency(int seedId, int index) {
+            int start = runStart(seedId, index);
+            int end = groupEnd(seedId);
+            int rank = start + 1;
+            while (rank < end && lcp[rank] >= k + 1) {
+                rank++;
+            }
+            return rank - start;
+        }
+
+        @Override
+        public int getTotalFrequency(int seedId) {
+            return groupEnd(seedId) - seedId;
+        }
+
+        @Override
+        public int sample(int seedId, RandomGenerator rand) {
+            //every suffix of the group is one occurrence, so a uniform rank is a draw weighted by frequency
+            int chosen = seedId + rand.nextInt(getTotalFrequency(seedId));
+            int index = 0;
+            for (int rank = seedId + 1; rank <= chosen; rank++) {
+                if (lcp[rank] < k + 1) {
+                    index++;
+                }
+            }
+            return index;
+        }
+
+        @Override
+        public int getRandomSeed(RandomGenerator rand) {
+            if (text.length <= k) {
+                return -1;
+            }
+
+            //draw a uniform starting position that has a follower, then step back to the start of its group
+            int rank;
+            do {
+                rank = rand.nextInt(suffixArray.length);
+            } while (text.length - suffixArray[rank] <= k);
+            while (!isSeedStart(rank, k)) {
+                rank--;
+            }
+            return rank;
+        }
+
+        @Override
+        public CompactFrequencyModel freeze() {
+            //seed ids of the view are ranks, the frozen model numbers its seeds densely instead
+            return buildModel(k).freeze();
+        }
+
+        @Override
+        public HashMap<String, HashMap<Character, Integer>> toFrequencyMap() {
+            return buildModel(k).toFrequencyMap();
+        }
+
+        private int groupEnd(int seedId) {
+            int end = seedId + 1;
+            while (end < suffixArray.length && lcp[end] >= k) {
+                end++;
+            }
+            return end;
+        }
+
+        private int runStart(int seedId, int index) {
+            int rank = seedId;
+            for (int run = 0; run < index; run++) {
+                rank++;
+                while (lcp[rank] >= k + 1) {
+                    rank++;
+                }
+            }
+            return rank;
+        }
+    }
+}
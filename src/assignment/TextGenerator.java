@@ -0,0 +1,85 @@
+package assignment;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates text from a FrequencyModel one buffer at a time
+ *
+ * The current context is kept as a seed id, so advancing one character is a draw from the seed's followers plus
+ * a getTransition() lookup. With a frozen CompactFrequencyModel both are array reads: a step costs the same for
+ * any k and allocates nothing. The generator picks up where the previous fill() stopped, so a long text can be
+ * produced in fixed-size pieces.
+ *
+ * A generator is cheap and meant for one thread; the model it reads is never modified, so any number of generators
+ * with their own random streams can share one model.
+ */
+public class TextGenerator {
+    private final FrequencyModel model;
+    private final RandomGenerator rand;
+
+    private int seedId = -1;
+    private char[] initialSeed;
+    private int initialSeedIndex;
+    private long reseeds;
+
+    /**
+     * @param model FrequencyModel to generate from, usually frozen
+     * @param rand  RandomGenerator used for every draw of this generator
+     */
+    public TextGenerator(FrequencyModel model, RandomGenerator rand) {
+        this.model = model;
+        this.rand = rand;
+    }
+
+    /**
+     * Generate the next characters of the text into buffer
+     * The text starts with a random seed from the model, and whenever the current seed is never followed by a
+     * character (it only occurs at the end of the source) a new random seed is chosen without being output
+     *
+     * @param buffer char[] to write the characters into
+     * @param offset int representing the index of buffer to start writing at
+     * @param length int representing the amount of characters to generate
+     * @return int representing the amount of characters written, always length
+     */
+    public int fill(char[] buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+
+        //the first characters of the text are the initial seed itself
+        if (seedId == -1) {
+            seedId = reseed();
+            initialSeed = model.getSeed(seedId).toCharArray();
+        }
+        while (initialSeedIndex < initialSeed.length && i < end) {
+            buffer[i++] = initialSeed[initialSeedIndex++];
+        }
+
+        while (i < end) {
+            int index = model.sample(seedId, rand);
+            buffer[i++] = model.getFollower(seedId, index);
+
+            //advance to the seed formed by the last k characters, or reseed if that seed has no followers
+            seedId = model.getTransition(seedId, index);
+            if (seedId == -1) {
+                seedId = reseed();
+                reseeds++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return long representing how often generation reached a seed without followers and jumped to a random seed
+     */
+    public long getReseedCount() {
+        return reseeds;
+    }
+
+    private int reseed() {
+        int randomSeed = model.getRandomSeed(rand);
+        if (randomSeed == -1) {
+            throw new IllegalStateException("Model has no seeds to generate from.");
+        }
+        return randomSeed;
+    }
+}
@@ -0,0 +1,204 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Interns the tokens of a word-level model into dense ids, so the model works on id n-grams instead of Strings
+ *
+ * Ids are handed out in order of first appearance and written as the code point that stands for them: the text of
+ * token ids is counted by the same CompactFrequencyModel, generated by the same TextGenerator and saved in the same
+ * ModelFile format as text of characters. The first 63488 ids skip the surrogates and take one char each, later ids
+ * a surrogate pair, so a vocabulary holds up to 1112064 tokens. k counts the chars of that text, so a seed holds
+ * fewer than k tokens where it covers ids past the first 63488; the most frequent tokens of a text usually appear
+ * early and keep single chars. Lookups go through an open-addressing table of ids, so no boxed value is stored per
+ * token.
+ */
+public class TokenDictionary {
+    private static final int SURROGATES = Character.MAX_SURROGATE - Character.MIN_SURROGATE + 1;
+
+    //one id per code point that is not a surrogate
+    static final int MAX_TOKENS = Character.MAX_CODE_POINT + 1 - SURROGATES;
+    private static final int MAGIC = 0x44544752;
+
+    private String[] tokens = new String[16];
+    private int[] hashes = new int[16];
+    private int size;
+
+    //each slot holds a token id + 1, 0 marks an empty slot
+    private int[] table = new int[32];
+
+    /**
+     * Split text into tokens and intern each of them
+     *
+     * @param text      CharSequence to encode
+     * @param tokenizer Tokenizer splitting the text
+     * @return char[] holding the code point of the id of every token of the text, in order
+     */
+    public char[] encode(CharSequence text, Tokenizer tokenizer) {
+        char[][] ids = {new char[Math.max(16, text.length() / 4)]};
+        int[] length = {0};
+        tokenizer.tokenize(text, token -> {
+            if (length[0] + 2 > ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], length[0] * 2);
+            }
+            length[0] += Character.toChars(toCodePoint(intern(token)), ids[0], length[0]);
+        });
+        return Arrays.copyOf(ids[0], length[0]);
+    }
+
+    /**
+     * @param id int representing a token id
+     * @return int representing the code point the id is written as, ids from 0xD800 on skip the surrogates
+     */
+    static int toCodePoint(int id) {
+        return id < Character.MIN_SURROGATE ? id : id + SURROGATES;
+    }
+
+    /**
+     * @param codePoint int representing a code point written by encode
+     * @return int representing the token id it stands for
+     */
+    static int toId(int codePoint) {
+        return codePoint < Character.MIN_SURROGATE ? codePoint : codePoint - SURROGATES;
+    }
+
+    /**
+     * @param token String to look up
+     * @return int representing the id of the token, interning it first if it is new
+     */
+    public int intern(String token) {
+        int hash = token.hashCode();
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+
+        //probe until the token is found or an empty slot shows that it has not been seen yet
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && tokens[id].equals(token)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == MAX_TOKENS) {
+            throw new IllegalStateException("Vocabulary is larger than " + MAX_TOKENS + " tokens.");
+        }
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        tokens[id] = token;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @param token String to look up
+     * @return int representing the id of the token, or -1 if it was never interned
+     */
+    public int getId(String token) {
+        int hash = token.hashCode();
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && tokens[id].equals(token)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id int representing a token id
+     * @return String representing the token
+     */
+    public String getToken(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No token with id " + id + ".");
+        }
+        return tokens[id];
+    }
+
+    /**
+     * @return int representing the amount of distinct tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write every token in id order, next to the model file of the token ids
+     *
+     * @param path Path of the dictionary file, replaced if it exists
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(size);
+            for (int id = 0; id < size; id++) {
+                out.writeInt(tokens[id].length());
+                out.writeChars(tokens[id]);
+            }
+        }
+    }
+
+    /**
+     * @param path Path of a dictionary file written by save
+     * @return TokenDictionary with the same ids
+     */
+    public static TokenDictionary load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a token dictionary.");
+            }
+            int count = in.readInt();
+            if (count < 0 || count > MAX_TOKENS) {
+                throw new IOException("Token dictionary is corrupt.");
+            }
+
+            TokenDictionary dictionary = new TokenDictionary();
+            for (int id = 0; id < count; id++) {
+                char[] token = new char[in.readInt()];
+                for (int i = 0; i < token.length; i++) {
+                    token[i] = in.readChar();
+                }
+                if (dictionary.intern(new String(token)) != id) {
+                    throw new IOException("Token dictionary holds a token twice.");
+                }
+            }
+            return dictionary;
+        }
+    }
+
+    private void rehash() {
+        int[] newTable = new int[table.length * 2];
+        int mask = newTable.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+        table = newTable;
+    }
+
+    //spread String.hashCode, whose low bits are weak for short tokens
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
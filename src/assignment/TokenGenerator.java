@@ -0,0 +1,72 @@
+package assignment;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates text from a word-level model, whose seeds and followers are token ids of a TokenDictionary
+ *
+ * The ids are generated exactly like characters by TextGenerator and each one is expanded into its token as it is
+ * drawn; an id written as a surrogate pair takes two draws. A half pair left by the start of the text or a jump to a
+ * random seed stands for no token and is skipped. fill() writes characters, not tokens: a token that does not fit
+ * in the buffer is continued by the next call, so a text of any length can be produced in fixed-size pieces like
+ * with TextGenerator.
+ */
+public class TokenGenerator extends TextGenerator {
+    private final TokenDictionary dictionary;
+    private final char[] id = new char[1];
+    private int pending = -1;
+    private String token = "";
+    private int tokenIndex;
+
+    /**
+     * @param model      FrequencyModel over token ids, usually frozen
+     * @param dictionary TokenDictionary the ids of the model were interned in
+     * @param rand       RandomGenerator used for every draw of this generator
+     */
+    public TokenGenerator(FrequencyModel model, TokenDictionary dictionary, RandomGenerator rand) {
+        super(model, rand);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int fill(char[] buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            //draw the next token once every character of the current one is written
+            if (tokenIndex == token.length()) {
+                token = dictionary.getToken(TokenDictionary.toId(nextCodePoint()));
+                tokenIndex = 0;
+            }
+            int count = Math.min(end - i, token.length() - tokenIndex);
+            token.getChars(tokenIndex, tokenIndex + count, buffer, i);
+            tokenIndex += count;
+            i += count;
+        }
+        return length;
+    }
+
+    //draw chars until they form a whole code point, skipping low surrogates that follow no high one
+    private int nextCodePoint() {
+        while (true) {
+            char first = pending != -1 ? (char) pending : draw();
+            pending = -1;
+            if (!Character.isSurrogate(first)) {
+                return first;
+            }
+            if (Character.isHighSurrogate(first)) {
+                char second = draw();
+                if (Character.isLowSurrogate(second)) {
+                    return Character.toCodePoint(first, second);
+                }
+                //the pair was cut by a jump to a random seed, the char drawn instead starts the next id
+                pending = second;
+            }
+        }
+    }
+
+    private char draw() {
+        super.fill(id, 0, 1);
+        return id[0];
+    }
+}
@@ -0,0 +1,66 @@
+package assignment;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into the tokens a word-level model is built over
+ *
+ * Generated text is the concatenation of the generated tokens, so a tokenizer should keep the whitespace and
+ * punctuation that belong to a token inside it; the text is then exactly the concatenation of its tokens.
+ */
+public interface Tokenizer {
+
+    /**
+     * Words with the whitespace after them, so the text is the concatenation of its tokens
+     */
+    Tokenizer WORDS = pattern("\\S+\\s*|\\s+");
+
+    /**
+     * Words and single punctuation marks, each with the whitespace after them
+     */
+    Tokenizer WORDS_AND_PUNCTUATION = pattern("[\\p{L}\\p{N}'_-]+\\s*|[^\\p{L}\\p{N}'_\\s-]\\s*|\\s+");
+
+    /**
+     * Pass every token of text to tokens, in order
+     *
+     * @param text   CharSequence to split
+     * @param tokens Consumer receiving each token
+     */
+    void tokenize(CharSequence text, Consumer<String> tokens);
+
+    /**
+     * @param regex String representing a regular expression matching one token, text between matches and
+     *              empty matches are dropped
+     * @return Tokenizer returning every match of regex
+     */
+    static Tokenizer pattern(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return (text, tokens) -> {
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                //an empty token would add nothing to generated text, so it is left out
+                if (matcher.end() > matcher.start()) {
+                    tokens.accept(matcher.group());
+                }
+            }
+        };
+    }
+
+    /**
+     * @param name String representing a tokenizer by name, "words" or "punctuation"
+     * @return Tokenizer with that name
+     */
+    static Tokenizer forName(String name) {
+        switch (name) {
+            case "":
+            case "words":
+                return WORDS;
+            case "punctuation":
+                return WORDS_AND_PUNCTUATION;
+            default:
+                throw new IllegalArgumentException("Unknown tokenizer " + name + ".");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class BackoffModelTest {
+
+    //verify that every order holds the same counts as a model built for that order alone
+    @Test
+    void testOrders() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        BackoffModel model = BackoffModel.build(source, 4);
+
+        for (int order = 0; order <= 4; order++) {
+            assertEquals(CompactFrequencyModelTest.referenceMap(source, order), model.getModel(order).toFrequencyMap());
+        }
+        assertEquals(CompactFrequencyModelTest.referenceMap(source, 4), model.toFrequencyMap());
+        assertEquals(4, model.getOrder(model.getSeedId("the ")));
+    }
+
+    //check that a dead end backs off to the longest known context and climbs back up afterwards
+    @Test
+    void testBackoff() {
+        BackoffModel model = BackoffModel.build("abcabd", 2);
+
+        //"bd" is never followed by a character and neither is "d", so only order 0 is left
+        int seedId = model.getSeedId("ab");
+        int afterD = model.getTransition(seedId, 1);
+        assertEquals(0, model.getOrder(afterD));
+        assertEquals("", model.getSeed(afterD));
+
+        //"b" followed by 'c' or 'd', where "bc" is a seed of order 2 and "bd" is not
+        int b = model.getTransition(afterD, 1);
+        assertEquals("b", model.getSeed(b));
+        assertEquals("bc", model.getSeed(model.getTransition(b, 0)));
+        assertEquals(0, model.getOrder(model.getTransition(b, 1)));
+    }
+
+    //verify that generation never reseeds: after the initial seed every character follows the longest known context
+    @Test
+    void testGeneration() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        BackoffModel model = BackoffModel.build(source, 6);
+        char[] buffer = new char[50000];
+        new TextGenerator(model, new SplittableRandom(2)).fill(buffer, 0, buffer.length);
+        String text = new String(buffer);
+
+        //every character must follow at least its previous character somewhere in the source
+        CompactFrequencyModel bigrams = model.getModel(1);
+        for (int i = 1; i < text.length(); i++) {
+            int seedId = bigrams.getSeedId(text, i - 1);
+            if (seedId != -1) {
+                boolean follows = false;
+                for (int index = 0; index < bigrams.getFollowerCount(seedId); index++) {
+                    follows |= bigrams.getFollower(seedId, index) == text.charAt(i);
+                }
+                assertTrue(follows);
+            }
+        }
+    }
+
+    //verify that main generates with a back-off model
+    @Test
+    void testBackoffOption() {
+        String[] args = {"test_books/CatInTheHat.txt", "output.txt", "5", "200", "--backoff"};
+
+        assertDoesNotThrow(() -> RandomWriter.main(args));
+    }
+}
@@ -0,0 +1,64 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+public class BatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    //verify that every job is written, failing jobs are counted and each model is only built once
+    @Test
+    void testManifest() throws Exception {
+        StringBuilder manifest = new StringBuilder("# source output k length\n\n");
+        for (int i = 0; i < 20; i++) {
+            String source = i % 2 == 0 ? "test_books/MuchAdo.txt" : "test_books/CatInTheHat.txt";
+            manifest.append(source).append(' ').append(tempDir.resolve("out" + i + ".txt")).append(" 4 500\n");
+        }
+        manifest.append("test_books/CatInTheHat.txt ").append(tempDir.resolve("bad.txt")).append(" 4\n");
+        manifest.append("test_books/missing.txt ").append(tempDir.resolve("missing.txt")).append(" 4 10\n");
+
+        BatchRunner runner = new BatchRunner(4, 3, StandardCharsets.UTF_8);
+        runner.run(new BufferedReader(new StringReader(manifest.toString())));
+
+        assertEquals(20, runner.getCompleted());
+        assertEquals(2, runner.getFailed());
+        assertEquals(2, runner.getCache().getBuilds());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(500, Files.readString(tempDir.resolve("out" + i + ".txt")).length());
+        }
+    }
+
+    //check that the cache evicts the least recently used model and rebuilds a source that changed
+    @Test
+    void testCache() throws IOException {
+        Path source = tempDir.resolve("source.txt");
+        Files.writeString(source, "the cat sat on the mat");
+        BatchRunner.ModelCache cache = new BatchRunner.ModelCache(2, StandardCharsets.UTF_8);
+
+        CompactFrequencyModel first = cache.get(source, 2);
+        assertSame(first, cache.get(source, 2));
+        cache.get(source, 3);
+        cache.get(Paths.get("test_books/CatInTheHat.txt"), 2);
+        assertEquals(2, cache.size());
+        assertNotSame(first, cache.get(source, 2));
+
+        Files.writeString(source, "a different text");
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+        CompactFrequencyModel changed = cache.get(source, 2);
+        assertTrue(changed.getSeedId("di") != -1);
+        assertEquals(5, cache.getBuilds());
+    }
+}
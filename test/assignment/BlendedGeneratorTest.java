@@ -0,0 +1,93 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+public class BlendedGeneratorTest {
+
+    //verify that merging models gives the summed counts of the texts they were built from
+    @Test
+    void testMerge() throws IOException {
+        String first = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        String second = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        CompactFrequencyModel merged = CompactFrequencyModel.merge(CompactFrequencyModel.build(first, 4),
+                CompactFrequencyModel.build(second, 4).freeze());
+
+        HashMap<String, HashMap<Character, Integer>> expected = CompactFrequencyModelTest.referenceMap(first, 4);
+        CompactFrequencyModelTest.referenceMap(second, 4).forEach((seed, followers) -> followers.forEach(
+                (follower, count) -> expected.computeIfAbsent(seed, s -> new HashMap<>()).merge(follower, count, Integer::sum)));
+        assertEquals(expected, merged.toFrequencyMap());
+
+        //models without a shared key buffer are merged seed by seed
+        merged = CompactFrequencyModel.merge(CompactFrequencyModel.build(first, 4), new SuffixArrayIndex(second).getModel(4));
+        assertEquals(expected, merged.toFrequencyMap());
+    }
+
+    //verify that a writer's merged model holds the summed counts and is frozen for generation
+    @Test
+    void testMergeModel() throws IOException {
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+        randomWriter.readText("test_books/CatInTheHat.txt");
+        randomWriter.createFrequency(randomWriter.getContent(), 3);
+        randomWriter.freezeModel();
+        String other = CompactFrequencyModelTest.readBook("OneFishTwoFish.txt");
+        randomWriter.mergeModel(CompactFrequencyModel.build(other, 3));
+
+        CompactFrequencyModel merged = (CompactFrequencyModel) randomWriter.getFrequencyModel();
+        assertTrue(merged.isFrozen());
+        HashMap<String, HashMap<Character, Integer>> expected =
+                CompactFrequencyModelTest.referenceMap(randomWriter.getContent(), 3);
+        CompactFrequencyModelTest.referenceMap(other, 3).forEach((seed, followers) -> followers.forEach(
+                (follower, count) -> expected.computeIfAbsent(seed, s -> new HashMap<>()).merge(follower, count, Integer::sum)));
+        assertEquals(expected, merged.toFrequencyMap());
+    }
+
+    //check that models of different k are rejected
+    @Test
+    void testMismatchedK() {
+        FrequencyModel[] models = {CompactFrequencyModel.build("abcabc", 2), CompactFrequencyModel.build("abcabc", 3)};
+
+        assertThrows(IllegalArgumentException.class, () -> CompactFrequencyModel.merge(models));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BlendedGenerator(models, new double[]{1, 1}, new SplittableRandom()));
+    }
+
+    //verify that a model with weight zero never contributes a character
+    @Test
+    void testZeroWeight() {
+        FrequencyModel[] models = {CompactFrequencyModel.build("abababab", 1).freeze(),
+                CompactFrequencyModel.build("xyxyxyxy", 1).freeze()};
+        BlendedGenerator generator = new BlendedGenerator(models, new double[]{1, 0}, new SplittableRandom(5));
+
+        char[] buffer = new char[500];
+        generator.fill(buffer, 0, buffer.length);
+        assertTrue(new String(buffer).matches("[ab]+"));
+    }
+
+    //check that both models contribute in roughly the proportion of their weights where they share contexts
+    @Test
+    void testWeights() {
+        FrequencyModel[] models = {CompactFrequencyModel.build("aaaaaaaa", 1).freeze(),
+                CompactFrequencyModel.build("abababab", 1).freeze()};
+        BlendedGenerator generator = new BlendedGenerator(models, new double[]{3, 1}, new SplittableRandom(9));
+
+        char[] buffer = new char[20000];
+        generator.fill(buffer, 0, buffer.length);
+
+        //after an 'a', the first model always says 'a' and the second always 'b'
+        int afterA = 0;
+        int b = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i - 1] == 'a') {
+                afterA++;
+                b += buffer[i] == 'b' ? 1 : 0;
+            }
+        }
+        assertEquals(0.25, (double) b / afterA, 0.02);
+    }
+}
@@ -0,0 +1,67 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+public class ByteFrequencyModelTest {
+
+    //verify that the byte model holds the same counts as the character model for every supported k
+    @Test
+    void testCounts() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        ByteBuffer bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.ISO_8859_1));
+
+        for (int k = 0; k <= ByteFrequencyModel.MAX_K; k++) {
+            ByteFrequencyModel model = ByteFrequencyModel.build(bytes, k);
+            assertEquals(CompactFrequencyModelTest.referenceMap(source, k), model.toFrequencyMap());
+        }
+        assertEquals(0, bytes.position());
+        assertThrows(IllegalArgumentException.class, () -> ByteFrequencyModel.build(bytes, 9));
+    }
+
+    //check that generating bytes gives the same text as generating characters from the same random stream
+    @Test
+    void testGeneration() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        ByteFrequencyModel model = ByteFrequencyModel.build(Paths.get("test_books/MuchAdo.txt"), 6);
+
+        char[] expected = new char[30000];
+        byte[] actual = new byte[30000];
+        new TextGenerator(CompactFrequencyModel.build(source, 6).freeze(), new SplittableRandom(4))
+                .fill(expected, 0, expected.length);
+        ByteGenerator generator = new ByteGenerator(model, new SplittableRandom(4));
+        generator.fill(actual, 0, 10);
+        generator.fill(actual, 10, actual.length - 10);
+
+        assertEquals(new String(expected), new String(actual, StandardCharsets.ISO_8859_1));
+    }
+
+    //verify that Latin-1 text is single-byte in Latin-1 but not in UTF-8, while ASCII text is in both
+    @Test
+    void testSingleByte(@TempDir Path dir) throws IOException {
+        Path latin = dir.resolve("latin.txt");
+        Files.write(latin, "caf\u00e9 cr\u00e8me".getBytes(StandardCharsets.ISO_8859_1));
+        Path utf8 = dir.resolve("utf8.txt");
+        Files.writeString(utf8, "na\u00efve caf\u00e9 au lait", StandardCharsets.UTF_8);
+
+        assertTrue(ByteFrequencyModel.isSingleByte(latin, StandardCharsets.ISO_8859_1));
+        assertFalse(ByteFrequencyModel.isSingleByte(utf8, StandardCharsets.UTF_8));
+        assertFalse(ByteFrequencyModel.isSingleByte(utf8, StandardCharsets.UTF_16));
+        assertTrue(ByteFrequencyModel.isSingleByte(Paths.get("test_books/MuchAdo.txt"), StandardCharsets.UTF_8));
+
+        ByteFrequencyModel model = ByteFrequencyModel.build(latin, 2);
+        assertEquals(CompactFrequencyModelTest.referenceMap("caf\u00e9 cr\u00e8me", 2), model.toFrequencyMap());
+        assertEquals("f\u00e9", model.getSeed(model.getSeedId("f\u00e9")));
+        assertEquals(-1, model.getSeedId("\u20ac\u20ac"));
+    }
+}
@@ -0,0 +1,153 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+public class CompactFrequencyModelTest {
+
+    //build the frequency map the way createFrequency originally did, as a reference for the compact model
+    static HashMap<String, HashMap<Character, Integer>> referenceMap(String source, int k) {
+        HashMap<String, HashMap<Character, Integer>> frequencyMap = new HashMap<>();
+        for (int i = 0; i <= source.length() - k - 1; i++) {
+            HashMap<Character, Integer> charMap = frequencyMap.computeIfAbsent(source.substring(i, i + k), s -> new HashMap<>());
+            charMap.merge(source.charAt(i + k), 1, Integer::sum);
+        }
+        return frequencyMap;
+    }
+
+    static String readBook(String name) throws IOException {
+        return Files.readString(Paths.get("test_books", name));
+    }
+
+    //verify that the compact model holds exactly the same seeds and counts as the reference map for several k
+    @Test
+    void testMatchesReference() throws IOException {
+        String source = readBook("MuchAdo.txt");
+        for (int k = 0; k <= 6; k++) {
+            CompactFrequencyModel model = CompactFrequencyModel.build(source, k);
+            assertEquals(referenceMap(source, k), model.toFrequencyMap());
+        }
+    }
+
+    //check that seed lookups find every seed and reject strings that never appear
+    @Test
+    void testSeedLookup() {
+        CompactFrequencyModel model = CompactFrequencyModel.build("broilbrokeoils", 3);
+
+        assertEquals(9, model.getSeedCount());
+        assertEquals("bro", model.getSeed(model.getSeedId("bro")));
+        assertEquals(2, model.getFollowerCount(model.getSeedId("oil")));
+        assertEquals(-1, model.getSeedId("ils"));
+        assertEquals(-1, model.getSeedId("xyz"));
+        assertEquals(-1, model.getSeedId("br"));
+    }
+
+    //check that followers are sorted by character and seed ids follow the order of first appearance
+    @Test
+    void testLayout() {
+        CompactFrequencyModel model = CompactFrequencyModel.build("broilbrokeoils", 3);
+        int seedId = model.getSeedId("bro");
+
+        assertEquals(0, seedId);
+        assertEquals('i', model.getFollower(seedId, 0));
+        assertEquals('k', model.getFollower(seedId, 1));
+        assertEquals(2, model.getTotalFrequency(seedId));
+    }
+
+    //verify that the model stays within its documented memory target
+    @Test
+    void testMemoryTarget() throws IOException {
+        String source = readBook("MuchAdo.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 5);
+
+        int pairs = 0;
+        for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+            pairs += model.getFollowerCount(seedId);
+        }
+        long target = 28L * model.getSeedCount() + 6L * pairs + 2L * source.length() + 4;
+        assertTrue(model.estimatedBytes() <= target);
+    }
+
+    //verify that a source shorter than k produces an empty model
+    @Test
+    void testShortSource() {
+        CompactFrequencyModel model = CompactFrequencyModel.build("ab", 3);
+
+        assertEquals(0, model.getSeedCount());
+        assertEquals(-1, model.getSeedId("abc"));
+    }
+
+    //random generator that always draws the given index, so samplers can be compared draw by draw
+    static RandomGenerator fixedDraw(int[] draw) {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                return draw[0];
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return draw[0];
+            }
+        };
+    }
+
+    //verify that freezing keeps every seed and count of the model
+    @Test
+    void testFreezeKeepsCounts() throws IOException {
+        String source = readBook("CatInTheHat.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 3);
+        CompactFrequencyModel frozen = model.freeze();
+
+        assertTrue(frozen.isFrozen());
+        assertFalse(model.isFrozen());
+        assertSame(frozen, frozen.freeze());
+        assertEquals(model.toFrequencyMap(), frozen.toFrequencyMap());
+    }
+
+    //verify that the binary search over running totals picks the same follower as the linear scan for every draw
+    @Test
+    void testFrozenSampleMatchesScan() throws IOException {
+        String source = readBook("OneFishTwoFish.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 2);
+        CompactFrequencyModel frozen = model.freeze();
+        int[] draw = new int[1];
+        RandomGenerator rand = fixedDraw(draw);
+
+        for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+            assertEquals(model.getTotalFrequency(seedId), frozen.getTotalFrequency(seedId));
+            for (draw[0] = 0; draw[0] < model.getTotalFrequency(seedId); draw[0]++) {
+                assertEquals(model.sample(seedId, rand), frozen.sample(seedId, rand));
+            }
+        }
+    }
+
+    //verify that the parallel build lays out exactly the same model as the sequential build
+    @Test
+    void testParallelBuildIdentical() throws IOException {
+        String source = readBook("MuchAdo.txt").repeat(3) + readBook("CatInTheHat.txt");
+        for (int k : new int[]{0, 1, 4, 9}) {
+            CompactFrequencyModel sequential = CompactFrequencyModel.build(source, k);
+            CompactFrequencyModel parallel = CompactFrequencyModel.build(source, k, 4);
+
+            assertArrayEquals(sequential.seedOffset, parallel.seedOffset);
+            assertArrayEquals(sequential.followerStart, parallel.followerStart);
+            assertArrayEquals(sequential.followers, parallel.followers);
+            assertArrayEquals(sequential.counts, parallel.counts);
+            assertEquals(sequential.toFrequencyMap(), parallel.toFrequencyMap());
+        }
+    }
+
+    //check exception if parallelism below one is requested
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> CompactFrequencyModel.build("simple test", 3, 0));
+    }
+}
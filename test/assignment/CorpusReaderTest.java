@@ -0,0 +1,63 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class CorpusReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    static String readAll(Path path, long windowSize) throws IOException {
+        StringBuilder text = new StringBuilder();
+        CorpusReader.read(path, StandardCharsets.UTF_8, text::append, windowSize);
+        return text.toString();
+    }
+
+    //verify that the decoded text matches the file for every book
+    @Test
+    void testReadsBooks() throws IOException {
+        for (String book : new String[]{"CatInTheHat.txt", "MuchAdo.txt", "Empty.txt", "simple.txt"}) {
+            Path path = Paths.get("test_books", book);
+            assertEquals(Files.readString(path), readAll(path, CorpusReader.WINDOW_SIZE));
+        }
+    }
+
+    //verify that multi-byte characters cut by a window boundary are decoded with the next window
+    @Test
+    void testWindowBoundaries() throws IOException {
+        Path path = tempDir.resolve("utf8.txt");
+        String text = "h\u00e9llo w\u00f6rld \u2713 \ud83d\ude00 ".repeat(5000);
+        Files.writeString(path, text);
+
+        for (long window : new long[]{1, 16, 17, 4099}) {
+            assertEquals(text, readAll(path, window));
+        }
+    }
+
+    //verify that a model streamed from the file matches one built from the whole text
+    @Test
+    void testStreamedModel() throws IOException {
+        Path path = Paths.get("test_books", "MuchAdo.txt");
+        String source = Files.readString(path);
+
+        CompactFrequencyModel streamed = CompactFrequencyModel.build(path, StandardCharsets.UTF_8, 4);
+        assertEquals(CompactFrequencyModel.build(source, 4).toFrequencyMap(), streamed.toFrequencyMap());
+    }
+
+    //check exception if the writer streams a model from a nonexistent file
+    @Test
+    void testStreamMissingFile() {
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+
+        assertThrows(IllegalArgumentException.class, () -> randomWriter.createFrequencyFromFile("nonexistentfile.txt", 3));
+    }
+}
@@ -0,0 +1,184 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class FidelityTest {
+    static final int K = 2;
+    static final int SAMPLE_LENGTH = 400_000;
+
+    //with a fixed seed a backend either always passes or always fails, so the bound can be wide: a correct sampler
+    //lands within a few standard deviations of the degrees of freedom, a wrong one many times further out
+    static final double DEVIATIONS = 6;
+    static final char SEPARATOR = '\u0000';
+
+    //generates about length characters from a backend with its draws taken from a stream of the given seed, with
+    //independent pieces of text separated by a character that is in no seed
+    interface Backend {
+        String generate(long seed, int length) throws IOException;
+    }
+
+    //verify that the text of every backend follows each seed with its followers in the proportions counted from the
+    //source, with a chi-square test over every seed the sample visits
+    @Test
+    void testBackendsMatchCounts(@TempDir Path dir) throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        HashMap<String, HashMap<Character, Integer>> reference = CompactFrequencyModelTest.referenceMap(source, K);
+
+        for (Map.Entry<String, Backend> backend : backends(source, dir).entrySet()) {
+            String text = backend.getValue().generate(11, SAMPLE_LENGTH);
+            double[] test = chiSquare(reference, text, K);
+            assertTrue(test[0] <= test[1] + DEVIATIONS * Math.sqrt(2 * test[1]),
+                    backend.getKey() + ": chi-square " + test[0] + " with " + test[1] + " degrees of freedom");
+        }
+    }
+
+    //check that the test rejects a sampler that is close to but not exactly the counts of the source
+    @Test
+    void testDetectsSkew() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        HashMap<String, HashMap<Character, Integer>> reference = CompactFrequencyModelTest.referenceMap(source, K);
+
+        //4-bit counts keep the order of every seed's followers but round their proportions
+        FrequencyModel quantized = new QuantizedFrequencyModel(CompactFrequencyModel.build(source, K), 4);
+        char[] text = new char[SAMPLE_LENGTH];
+        new TextGenerator(quantized, new SplittableRandom(11)).fill(text, 0, text.length);
+        double[] test = chiSquare(reference, new String(text), K);
+        assertTrue(test[0] > test[1] + DEVIATIONS * Math.sqrt(2 * test[1]));
+    }
+
+    //every model generation can run on, each built from the same source
+    static Map<String, Backend> backends(String source, Path dir) throws IOException {
+        CompactFrequencyModel compact = CompactFrequencyModel.build(source, K);
+        Path modelFile = dir.resolve("model.bin");
+        ModelFile.save(compact, modelFile);
+        IncrementalModel incremental = new IncrementalModel(K);
+        for (int i = 0; i < source.length(); i += 10000) {
+            incremental.append(source.substring(i, Math.min(source.length(), i + 10000)));
+        }
+        SuffixArrayIndex index = new SuffixArrayIndex(source);
+        ByteFrequencyModel bytes = ByteFrequencyModel.build(
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.ISO_8859_1)), K);
+
+        Map<String, Backend> backends = new LinkedHashMap<>();
+        backends.put("compact", characters(compact));
+        backends.put("frozen", characters(compact.freeze()));
+        backends.put("parallel", characters(CompactFrequencyModel.build(source, K, 4).freeze()));
+        backends.put("incremental", characters(incremental.current()));
+        backends.put("suffixArray", characters(index.getModel(K)));
+        backends.put("suffixArrayBuilt", characters(index.buildModel(K).freeze()));
+        backends.put("modelFile", characters(ModelFile.load(modelFile)));
+        backends.put("sharded", characters(ShardedFrequencyModel.build(source, K, 3).freeze()));
+        backends.put("lazy", characters(new LazyFrequencyModel(source, K, 16)));
+        backends.put("offHeap", (seed, length) -> {
+            try (OffHeapFrequencyModel model = OffHeapFrequencyModel.of(compact)) {
+                return characters(model).generate(seed, length);
+            }
+        });
+        backends.put("bytes", (seed, length) -> {
+            byte[] text = new byte[length];
+            new ByteGenerator(bytes, new SplittableRandom(seed)).fill(text, 0, length);
+            return new String(text, StandardCharsets.ISO_8859_1);
+        });
+        backends.put("segmented", (seed, length) -> {
+            Path output = dir.resolve("segmented.txt");
+            SegmentedWriter writer = new SegmentedWriter(rand -> new TextGenerator(compact.freeze(), rand),
+                    StandardCharsets.ISO_8859_1, 8, seed);
+            assertEquals(length, writer.write(output, length, 4));
+
+            //every segment starts a chain of its own, so the text is split where one segment ends
+            String text = Files.readString(output, StandardCharsets.ISO_8859_1);
+            StringBuilder segments = new StringBuilder();
+            for (int segment = 0, start = 0; segment < 8; start += writer.segmentLength(length, segment++)) {
+                segments.append(text, start, start + writer.segmentLength(length, segment)).append(SEPARATOR);
+            }
+            return segments.toString();
+        });
+        return backends;
+    }
+
+    static Backend characters(FrequencyModel model) {
+        return (seed, length) -> {
+            char[] text = new char[length];
+            new TextGenerator(model, new SplittableRandom(seed)).fill(text, 0, length);
+            return new String(text);
+        };
+    }
+
+    /**
+     * Pearson's chi-square test of the followers seen after every seed of text against the counts of the source
+     * A seed's followers expected fewer than 5 times are pooled into one cell, which is left out if it is still
+     * expected fewer than 5 times, and seeds left with a single cell carry no information. Windows that are not a
+     * seed of the source, such as the seed before a reseed, are skipped, and so are windows followed by a separator.
+     *
+     * @return double[] holding the statistic and its degrees of freedom
+     */
+    static double[] chiSquare(HashMap<String, HashMap<Character, Integer>> reference, String text, int k) {
+        HashMap<String, HashMap<Character, Integer>> observed = new HashMap<>();
+        for (int i = k; i < text.length(); i++) {
+            String seed = text.substring(i - k, i);
+            if (reference.containsKey(seed) && text.charAt(i) != SEPARATOR) {
+                observed.computeIfAbsent(seed, s -> new HashMap<>()).merge(text.charAt(i), 1, Integer::sum);
+            }
+        }
+
+        double statistic = 0;
+        long degrees = 0;
+        for (Map.Entry<String, HashMap<Character, Integer>> seed : observed.entrySet()) {
+            HashMap<Character, Integer> counts = reference.get(seed.getKey());
+            HashMap<Character, Integer> seen = seed.getValue();
+            long total = 0;
+            long draws = 0;
+            for (int count : counts.values()) {
+                total += count;
+            }
+            for (int count : seen.values()) {
+                draws += count;
+            }
+
+            int cells = 0;
+            double pooledExpected = 0;
+            long pooledSeen = 0;
+            double seedStatistic = 0;
+            for (Map.Entry<Character, Integer> follower : counts.entrySet()) {
+                double expected = (double) draws * follower.getValue() / total;
+                int actual = seen.getOrDefault(follower.getKey(), 0);
+                if (expected < 5) {
+                    pooledExpected += expected;
+                    pooledSeen += actual;
+                } else {
+                    seedStatistic += (actual - expected) * (actual - expected) / expected;
+                    cells++;
+                }
+            }
+
+            //a follower the source never had after this seed can never be explained by its counts
+            for (char follower : seen.keySet()) {
+                if (!counts.containsKey(follower)) {
+                    return new double[]{Double.POSITIVE_INFINITY, 1};
+                }
+            }
+            if (pooledExpected >= 5) {
+                seedStatistic += (pooledSeen - pooledExpected) * (pooledSeen - pooledExpected) / pooledExpected;
+                cells++;
+            }
+            if (cells > 1) {
+                statistic += seedStatistic;
+                degrees += cells - 1;
+            }
+        }
+        return new double[]{statistic, degrees};
+    }
+}
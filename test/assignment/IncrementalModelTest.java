@@ -0,0 +1,88 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IncrementalModelTest {
+
+    //verify that appending a text in pieces gives the same counts as building over the whole text
+    @Test
+    void testMatchesFullBuild() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        for (int k = 0; k <= 5; k++) {
+            IncrementalModel model = new IncrementalModel(k);
+            for (int start = 0; start < source.length(); start += 7919) {
+                model.append(source.substring(start, Math.min(source.length(), start + 7919)));
+            }
+            assertEquals(CompactFrequencyModelTest.referenceMap(source, k), model.current().toFrequencyMap());
+        }
+    }
+
+    //verify that continuing a built model only needs the new text and the last k characters of the old text
+    @Test
+    void testContinueModel() {
+        String first = "the cat sat on the";
+        String second = " mat and the cat ran";
+        CompactFrequencyModel built = CompactFrequencyModel.build(first, 3);
+
+        IncrementalModel model = new IncrementalModel(built, first.substring(first.length() - 3));
+        model.append(second);
+
+        assertEquals(CompactFrequencyModelTest.referenceMap(first + second, 3), model.current().toFrequencyMap());
+        assertEquals(CompactFrequencyModelTest.referenceMap(first, 3), built.toFrequencyMap());
+    }
+
+    //check that seeds keep their ids across snapshots and old snapshots stay unchanged
+    @Test
+    void testSnapshots() {
+        IncrementalModel model = new IncrementalModel(2);
+        model.append("abcab");
+        CompactFrequencyModel before = model.current();
+        int seedId = before.getSeedId("ab");
+
+        model.append("x", false);
+        assertSame(before, model.current());
+        CompactFrequencyModel after = model.publish();
+
+        assertEquals(seedId, after.getSeedId("ab"));
+        assertEquals(1, before.getFollowerCount(seedId));
+        assertEquals(2, after.getFollowerCount(seedId));
+        assertEquals(-1, before.getSeedId("bx"));
+        assertTrue(after.isFrozen());
+    }
+
+    //check that generators keep working on their snapshot while another thread appends
+    @Test
+    void testConcurrentAppend() throws Exception {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        IncrementalModel model = new IncrementalModel(4);
+        model.append(source.substring(0, 1000));
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int start = 1000; start < source.length(); start += 4096) {
+                model.append(source.substring(start, Math.min(source.length(), start + 4096)));
+            }
+        });
+        writer.start();
+
+        SplittableRandom rand = new SplittableRandom(3);
+        char[] buffer = new char[256];
+        try {
+            while (writer.isAlive()) {
+                new TextGenerator(model.current(), rand.split()).fill(buffer, 0, buffer.length);
+            }
+        } catch (Throwable e) {
+            error.set(e);
+        }
+        writer.join();
+
+        assertNull(error.get());
+        assertEquals(CompactFrequencyModelTest.referenceMap(source, 4), model.current().toFrequencyMap());
+    }
+}
@@ -0,0 +1,67 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class LazyFrequencyModelTest {
+
+    //verify that the followers counted on demand match a model built up front for every k
+    @Test
+    void testCounts() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        for (int k = 0; k <= 6; k++) {
+            LazyFrequencyModel model = new LazyFrequencyModel(source, k, 64);
+            assertEquals(CompactFrequencyModelTest.referenceMap(source, k), model.toFrequencyMap());
+            assertEquals(CompactFrequencyModel.build(source, k).getSeedCount(), model.getSeedCount());
+        }
+        assertEquals(-1, new LazyFrequencyModel(source, 3, 64).getSeedId("zzz"));
+        assertEquals(-1, new LazyFrequencyModel("ab", 2, 64).getRandomSeed(new SplittableRandom(1)));
+    }
+
+    //check that every seed's followers, draws and transitions agree with a frozen compact model
+    @Test
+    void testSeeds() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        LazyFrequencyModel lazy = new LazyFrequencyModel(source, 4, 16);
+        CompactFrequencyModel compact = CompactFrequencyModel.build(source, 4).freeze();
+
+        for (int compactId = 0; compactId < compact.getSeedCount(); compactId += 7) {
+            int seedId = lazy.getSeedId(compact.getSeed(compactId));
+            assertEquals(compact.getSeed(compactId), lazy.getSeed(seedId));
+            assertEquals(compact.getFollowerCount(compactId), lazy.getFollowerCount(seedId));
+            assertEquals(compact.getTotalFrequency(compactId), lazy.getTotalFrequency(seedId));
+            for (int index = 0; index < compact.getFollowerCount(compactId); index++) {
+                assertEquals(compact.getFollower(compactId, index), lazy.getFollower(seedId, index));
+                assertEquals(compact.getFrequency(compactId, index), lazy.getFrequency(seedId, index));
+                int next = compact.getTransition(compactId, index);
+                int lazyNext = lazy.getTransition(seedId, index);
+                assertEquals(next == -1 ? -1 : lazy.getSeedId(compact.getSeed(next)), lazyNext);
+            }
+            assertEquals(compact.sample(compactId, new SplittableRandom(compactId)),
+                    lazy.sample(seedId, new SplittableRandom(compactId)));
+        }
+    }
+
+    //verify that repeated draws are served from the cache and seeds beyond its size are evicted and counted again
+    @Test
+    void testCache() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        LazyFrequencyModel model = new LazyFrequencyModel(source, 5, 8);
+
+        int seedId = model.getSeedId("the w");
+        for (int i = 0; i < 100; i++) {
+            model.sample(seedId, new SplittableRandom(i));
+        }
+        assertEquals(1, model.getComputedCount());
+
+        char[] buffer = new char[20000];
+        new TextGenerator(model, new SplittableRandom(3)).fill(buffer, 0, buffer.length);
+        long computed = model.getComputedCount();
+        assertTrue(computed > 8);
+        assertTrue(computed < 3L * buffer.length);
+    }
+}
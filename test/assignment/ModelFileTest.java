@@ -0,0 +1,94 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ModelFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    //verify that a saved and mapped model holds the same seeds and counts as the model it came from
+    @Test
+    void testRoundTrip() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        for (int k : new int[]{0, 1, 3, 7}) {
+            CompactFrequencyModel model = CompactFrequencyModel.build(source, k);
+            Path path = tempDir.resolve("model-" + k + ".bin");
+            ModelFile.save(model, path);
+            BufferFrequencyModel loaded = ModelFile.load(path);
+
+            assertTrue(loaded.verify());
+            assertEquals(k, loaded.getK());
+            assertEquals(ModelFile.size(model.freeze()), Files.size(path));
+            assertEquals(model.toFrequencyMap(), loaded.toFrequencyMap());
+            assertEquals(model.getSeedId(source.substring(100, 100 + k)), loaded.getSeedId(source, 100));
+        }
+    }
+
+    //verify that generating from the mapped model gives the same text as the frozen model it was saved from
+    @Test
+    void testGenerationMatches() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 4).freeze();
+        Path path = tempDir.resolve("model.bin");
+        ModelFile.save(model, path);
+
+        assertEquals(TextGeneratorTest.generate(model, 11, 5000, 5000),
+                TextGeneratorTest.generate(ModelFile.load(path), 11, 5000, 5000));
+    }
+
+    //check that corruption is caught by the checksum and that foreign files are rejected
+    @Test
+    void testCorruptFiles() throws IOException {
+        Path path = tempDir.resolve("model.bin");
+        ModelFile.save(CompactFrequencyModel.build("broilbrokeoils", 3), path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+        assertFalse(ModelFile.load(path).verify());
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> ModelFile.load(path));
+        assertThrows(IOException.class, () -> ModelFile.wrap(ByteBuffer.allocate(ModelFile.HEADER_SIZE)));
+    }
+
+    //verify that main saves a model on the first run and generates from the mapped model on the next
+    @Test
+    void testMainReusesModel() throws IOException {
+        Path model = tempDir.resolve("cat.model");
+        Path output = tempDir.resolve("out.txt");
+        String[] args = {"test_books/CatInTheHat.txt", output.toString(), "3", "500", "--model=" + model};
+
+        RandomWriter.main(args);
+        assertTrue(Files.isRegularFile(model));
+        long saved = Files.getLastModifiedTime(model).toMillis();
+
+        RandomWriter.main(args);
+        assertEquals(saved, Files.getLastModifiedTime(model).toMillis());
+        assertEquals(500, Files.readString(output).length());
+
+        //a model built with another k or charset is rebuilt and replaced instead of being used
+        RandomWriter.main(new String[]{args[0], args[1], "4", "500", args[4]});
+        assertEquals(4, ModelFile.load(model).getK());
+        assertTrue(ModelFile.matches(model, 4, "compact characters UTF-8"));
+        RandomWriter.main(new String[]{args[0], args[1], "4", "500", args[4], "--charset=ISO-8859-1"});
+        assertTrue(ModelFile.matches(model, 4, "compact characters ISO-8859-1"));
+        assertFalse(ModelFile.matches(model, 4, "compact characters UTF-8"));
+        assertFalse(ModelFile.matches(model, 3, "compact characters ISO-8859-1"));
+
+        //a corrupt model of the right build is not generated from once loaded models are verified
+        byte[] bytes = Files.readAllBytes(model);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(model, bytes);
+        String[] corrupt = {args[0], args[1], "4", "500", args[4], "--charset=ISO-8859-1", "--verify-model"};
+        assertThrows(IOException.class, () -> RandomWriter.main(corrupt));
+    }
+}
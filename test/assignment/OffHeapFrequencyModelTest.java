@@ -0,0 +1,44 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class OffHeapFrequencyModelTest {
+
+    //verify that the off-heap copy holds the same counts and generates the same text as the frozen heap model
+    @Test
+    void testSameModel() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 5).freeze();
+
+        try (OffHeapFrequencyModel offHeap = OffHeapFrequencyModel.of(model)) {
+            assertEquals(model.toFrequencyMap(), offHeap.toFrequencyMap());
+            assertEquals(ModelFile.size(model), offHeap.sizeInBytes());
+
+            char[] expected = new char[20000];
+            char[] actual = new char[20000];
+            new TextGenerator(model, new SplittableRandom(9)).fill(expected, 0, expected.length);
+            new TextGenerator(offHeap, new SplittableRandom(9)).fill(actual, 0, actual.length);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    //check that a closed model frees its memory once and refuses further lookups
+    @Test
+    void testClose() {
+        OffHeapFrequencyModel model = OffHeapFrequencyModel.of(CompactFrequencyModel.build("abcabd", 2));
+        assertEquals(0, model.getSeedId("ab"));
+        model.close();
+
+        assertTrue(model.isClosed());
+        assertEquals(0, model.sizeInBytes());
+        assertEquals(3, model.getSeedCount());
+        assertThrows(IllegalStateException.class, () -> model.getSeedId("ab"));
+        assertThrows(IllegalStateException.class, () -> model.getRandomSeed(new SplittableRandom(1)));
+        model.close();
+    }
+}
@@ -0,0 +1,97 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+public class QuantizedFrequencyModelTest {
+
+    //verify that pruning keeps exactly the seeds and followers that reach the minimum counts
+    @Test
+    void testPrune() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        CompactFrequencyModel full = CompactFrequencyModel.build(source, 4);
+        CompactFrequencyModel pruned = full.prune(5, 2);
+
+        HashMap<String, HashMap<Character, Integer>> expected = new HashMap<>();
+        CompactFrequencyModelTest.referenceMap(source, 4).forEach((seed, followers) -> {
+            HashMap<Character, Integer> kept = new HashMap<>();
+            followers.forEach((follower, count) -> {
+                if (count >= 2) {
+                    kept.put(follower, count);
+                }
+            });
+            if (kept.values().stream().mapToInt(Integer::intValue).sum() >= 5) {
+                expected.put(seed, kept);
+            }
+        });
+        assertEquals(expected, pruned.toFrequencyMap());
+        assertTrue(pruned.estimatedBytes() < full.estimatedBytes());
+    }
+
+    //verify that quantized weights keep every follower and stay proportional to the counts
+    @Test
+    void testQuantize() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append(i % 100 == 0 ? "ab" : i % 4 == 0 ? "ac" : "ad");
+        }
+        CompactFrequencyModel full = CompactFrequencyModel.build(source.toString(), 1);
+        QuantizedFrequencyModel quantized = new QuantizedFrequencyModel(full, 4);
+        int seedId = quantized.getSeedId("a");
+
+        //'b' follows 10 times, 'c' 240 times and 'd' 750 times
+        assertEquals(3, quantized.getFollowerCount(seedId));
+        assertEquals(1, quantized.getFrequency(seedId, 0));
+        assertEquals(5, quantized.getFrequency(seedId, 1));
+        assertEquals(15, quantized.getFrequency(seedId, 2));
+        assertEquals(21, quantized.getTotalFrequency(seedId));
+
+        //draws follow the quantized weights
+        int[] draws = new int[3];
+        SplittableRandom rand = new SplittableRandom(4);
+        for (int i = 0; i < 21000; i++) {
+            draws[quantized.sample(seedId, rand)]++;
+        }
+        assertEquals(1000, draws[0], 150);
+        assertEquals(5000, draws[1], 300);
+        assertEquals(15000, draws[2], 300);
+    }
+
+    //check the report of a model against itself and against a reduced copy
+    @Test
+    void testReport() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        CompactFrequencyModel full = CompactFrequencyModel.build(source, 5).freeze();
+
+        ReductionReport same = ReductionReport.compare(full, full, full.estimatedBytes());
+        assertEquals(1.0, same.getCoverage(), 1e-9);
+        assertEquals(0.0, same.getTotalVariation(), 1e-9);
+        assertEquals(0.0, same.getDivergence(), 1e-9);
+        assertEquals(0, same.getBytesSaved());
+
+        QuantizedFrequencyModel reduced = new QuantizedFrequencyModel(full.prune(3, 1), 4);
+        ReductionReport report = ReductionReport.compare(full, reduced, reduced.estimatedBytes());
+        assertTrue(report.getBytesSaved() > 0);
+
+        //8-bit weights save 7 of the 8 bytes of counts and running totals per pair, and the totals cost 4 per seed
+        QuantizedFrequencyModel quantized = new QuantizedFrequencyModel(full, 8);
+        assertEquals(full.estimatedBytes() - 7L * full.followers.length + 4L * full.getSeedCount(),
+                quantized.estimatedBytes());
+        assertTrue(report.getCoverage() < 1 && report.getCoverage() > 0.5);
+        assertTrue(report.getTotalVariation() > 0 && report.getTotalVariation() < 0.5);
+        assertTrue(report.getDivergence() >= 0);
+    }
+
+    //verify that main generates from a pruned and quantized model
+    @Test
+    void testReduceOptions() {
+        String[] args = {"test_books/MuchAdo.txt", "output.txt", "5", "200", "--prune=2,2", "--quantize=8"};
+
+        assertDoesNotThrow(() -> RandomWriter.main(args));
+    }
+}
@@ -3,8 +3,15 @@ package assignment;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 
 public class RandomWriterTest {
@@ -16,16 +23,33 @@ public class RandomWriterTest {
         assertDoesNotThrow(() -> RandomWriter.main(args));
     }
 
-    //check that the content retrieved from the input file is same as content read
+    //check that the content retrieved from the input file is same as content read, and that main keeps its own state
     @Test
     void testGetContent() throws IOException {
         String[] args = {"test_books/simple.txt", "output.txt", "3", "10"};
         RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
-        randomWriter.main(args);
+        randomWriter.readText("test_books/simple.txt");
+        RandomWriter.main(args);
 
         assertEquals("simple test", randomWriter.getContent());
     }
 
+    //verify that two writers read and model their own sources without overwriting each other
+    @Test
+    void testIndependentInstances() throws IOException {
+        RandomWriter first = (RandomWriter) RandomWriter.createProcessor(3);
+        RandomWriter second = (RandomWriter) RandomWriter.createProcessor(2);
+        first.readText("test_books/simple.txt");
+        first.createFrequency(first.getContent(), 3);
+        second.readText("test_books/bro.txt");
+        second.createFrequency(second.getContent(), 2);
+
+        assertEquals("simple test", first.getContent());
+        assertEquals(3, first.getFrequencyModel().getK());
+        assertEquals("broilbrokeoils", second.getContent());
+        assertEquals(2, second.getFrequencyModel().getK());
+    }
+
     //check exception thrown if less than 4 arguments passed
     @Test
     void testLessArgs() {
@@ -325,5 +349,185 @@ public class RandomWriterTest {
         assertEquals(theoMap, actualMap);
     }
 
+    //verify that main accepts a parallelism option after the required arguments
+    @Test
+    void testParallelismOption() {
+        String[] args = {"test_books/MuchAdo.txt", "output.txt", "4", "100", "--parallelism=4"};
+
+        assertDoesNotThrow(() -> RandomWriter.main(args));
+    }
+
+    //check exception if the parallelism option is not a positive integer
+    @Test
+    void testInvalidParallelism() {
+        String[] args = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--parallelism=none"};
+        String[] args2 = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--parallelism=0"};
+
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args2));
+    }
+
+    //verify that appended text updates the model as if it had been part of the source
+    @Test
+    void testAppendText() throws IOException {
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+        randomWriter.createFrequency("broilbroke", 3);
+        FrequencyModel before = randomWriter.getFrequencyModel();
+
+        randomWriter.appendText("oils");
+
+        assertEquals(CompactFrequencyModelTest.referenceMap("broilbrokeoils", 3), randomWriter.getFrequencyMap());
+        assertEquals(CompactFrequencyModelTest.referenceMap("broilbroke", 3), before.toFrequencyMap());
+    }
+
+    //verify that text appended to a model counted straight from the file continues the end of the file
+    @Test
+    void testAppendAfterBuildFromFile(@TempDir Path dir) throws IOException {
+        Path source = dir.resolve("source.txt");
+        Files.writeString(source, "broilbroke");
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+        randomWriter.createFrequencyFromFile(source.toString(), 3);
+
+        randomWriter.appendText("oils");
+
+        assertEquals(CompactFrequencyModelTest.referenceMap("broilbrokeoils", 3), randomWriter.getFrequencyMap());
+    }
+
+    //verify that byte mode writes text made only of characters of an ASCII source
+    @Test
+    void testBytesOption() throws IOException {
+        String[] args = {"test_books/CatInTheHat.txt", "output.txt", "4", "500", "--bytes"};
+        RandomWriter.main(args);
+
+        String output = Files.readString(Paths.get("output.txt"));
+        String source = Files.readString(Paths.get("test_books/CatInTheHat.txt"));
+        assertEquals(500, output.length());
+        for (int i = 0; i < output.length(); i++) {
+            assertTrue(source.indexOf(output.charAt(i)) != -1);
+        }
+    }
+
+    //verify that byte mode reports falling back to characters with options it cannot honor
+    @Test
+    void testBytesFallback() throws IOException {
+        PrintStream err = System.err;
+        try {
+            for (String option : new String[]{"--parallelism=2", "--stream"}) {
+                ByteArrayOutputStream messages = new ByteArrayOutputStream();
+                System.setErr(new PrintStream(messages, true, StandardCharsets.UTF_8));
+                String[] args = {"test_books/CatInTheHat.txt", "output.txt", "4", "500", "--bytes", option};
+                RandomWriter.main(args);
+
+                assertEquals(500, Files.readString(Paths.get("output.txt")).length());
+                assertTrue(messages.toString(StandardCharsets.UTF_8).contains("byte mode not used"));
+            }
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    //verify that a seed makes the output reproducible for every random algorithm
+    @Test
+    void testSeedOption() throws IOException {
+        for (String algorithm : new String[]{"SplittableRandom", "L64X128MixRandom", "Xoshiro256PlusPlus", "Random"}) {
+            String[] args = {"test_books/MuchAdo.txt", "output.txt", "4", "2000", "--seed=17", "--random=" + algorithm};
+            RandomWriter.main(args);
+            String first = Files.readString(Paths.get("output.txt"));
+            RandomWriter.main(args);
+            assertEquals(first, Files.readString(Paths.get("output.txt")));
+        }
+
+        RandomWriter first = (RandomWriter) RandomWriter.createProcessor(3, 99);
+        RandomWriter second = (RandomWriter) RandomWriter.createProcessor(3, 99);
+        first.readText("test_books/CatInTheHat.txt");
+        second.readText("test_books/CatInTheHat.txt");
+        first.createFrequency(first.getContent(), 3);
+        second.createFrequency(second.getContent(), 3);
+        char[] expected = new char[500];
+        char[] actual = new char[500];
+        first.newGenerator().fill(expected, 0, expected.length);
+        second.newGenerator().fill(actual, 0, actual.length);
+        assertArrayEquals(expected, actual);
+    }
+
+    //check exception if the random algorithm does not exist
+    @Test
+    void testInvalidRandomAlgorithm() {
+        String[] args = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--random=NoSuchRandom"};
+
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+
+        //a stochastic algorithm cannot reproduce a seeded output, in whichever order the options are given
+        String[] seedFirst = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--seed=5", "--random=SecureRandom"};
+        String[] seedLast = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--random=SecureRandom", "--seed=5"};
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(seedFirst));
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(seedLast));
+        assertDoesNotThrow(() -> RandomWriter.main(new String[]{seedFirst[0], seedFirst[1], "3", "10",
+                "--random=SecureRandom"}));
+    }
+
+    //verify that dropping the content after the model is built leaves generation unchanged for k > 0 and draws from
+    //the characters of the source for k = 0
+    @Test
+    void testDropContent() throws IOException {
+        String[] args = {"test_books/MuchAdo.txt", "output.txt", "4", "2000", "--seed=5"};
+        RandomWriter.main(args);
+        String expected = Files.readString(Paths.get("output.txt"));
+        RandomWriter.main(new String[]{args[0], args[1], args[2], args[3], args[4], "--drop-content"});
+        assertEquals(expected, Files.readString(Paths.get("output.txt")));
+
+        RandomWriter.main(new String[]{"test_books/CatInTheHat.txt", "output.txt", "0", "500", "--drop-content"});
+        String output = Files.readString(Paths.get("output.txt"));
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        assertEquals(500, output.length());
+        for (int i = 0; i < output.length(); i++) {
+            assertTrue(source.indexOf(output.charAt(i)) != -1);
+        }
+
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(3);
+        assertThrows(IllegalStateException.class, writer::releaseContent);
+        writer.readText("test_books/CatInTheHat.txt");
+        writer.createFrequency(writer.getContent(), 3);
+        writer.releaseContent();
+        assertEquals("", writer.getContent());
+        assertThrows(IllegalStateException.class, writer::createIndex);
+        writer.appendText(" the cat");
+        assertEquals("", writer.getContent());
+        assertTrue(writer.getFrequencyModel().getSeedId("cat") != -1);
+    }
+
+    //check exception before anything is built if a model file is combined with a model that cannot be saved
+    @Test
+    void testModelFileWithUnsavableModel(@TempDir Path dir) {
+        Path model = dir.resolve("model.bin");
+        for (String option : new String[]{"--backoff", "--lazy", "--shards=2", "--prune=2", "--quantize=4"}) {
+            String[] args = {"test_books/CatInTheHat.txt", "output.txt", "3", "10", "--model=" + model, option};
+            assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+            assertFalse(Files.exists(model));
+        }
+    }
+
+    //check that an off-heap model is refused with options building another model before the output is written
+    @Test
+    void testOffHeapWithOtherModel(@TempDir Path dir) {
+        Path output = dir.resolve("output.txt");
+        for (String option : new String[]{"--backoff", "--lazy", "--shards=2", "--prune=2", "--quantize=4"}) {
+            String[] args = {"test_books/CatInTheHat.txt", output.toString(), "3", "10", "--offheap", option};
+            assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+            assertFalse(Files.exists(output));
+        }
+    }
 
+    //verify that the model main counts straight from the file generates the same text as one built from content
+    @Test
+    void testBuildFromFile() throws IOException {
+        String[] args = {"test_books/MuchAdo.txt", "output.txt", "4", "2000", "--seed=8"};
+        RandomWriter.main(args);
+        String fromFile = Files.readString(Paths.get("output.txt"));
+        RandomWriter.main(new String[]{args[0], args[1], args[2], args[3], args[4], "--parallelism=2"});
+        assertEquals(Files.readString(Paths.get("output.txt")), fromFile);
+
+        String[] tooShort = {"test_books/simple.txt", "output.txt", "11", "10"};
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(tooShort));
+    }
 }
@@ -0,0 +1,57 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class RunMetricsTest {
+
+    //verify that recorded timings and counters show up in the rates and the JSON line
+    @Test
+    void testRecord() {
+        RunMetrics metrics = new RunMetrics();
+        CompactFrequencyModel model = CompactFrequencyModel.build("abcabd", 2).freeze();
+        TextGenerator generator = new TextGenerator(model, new SplittableRandom(1));
+        generator.fill(new char[100], 0, 100);
+
+        metrics.recordRead(1000, 500_000_000L);
+        metrics.recordBuild(model, 2_000_000L);
+        metrics.recordGenerate(generator, 100, 1_000L);
+        metrics.recordWrite(100, 1_000L);
+
+        assertEquals(2000.0, metrics.getReadBytesPerSecond(), 1e-6);
+        assertEquals(2.0, metrics.getBuildMillis(), 1e-9);
+        assertEquals(3, metrics.getDistinctSeeds());
+        assertEquals(4.0 / 3, metrics.getAverageFollowersPerSeed(), 1e-9);
+        assertEquals(generator.getReseedCount(), metrics.getReseeds());
+        assertTrue(metrics.getReseeds() > 0);
+        assertTrue(metrics.toJson().startsWith("{\"bytesRead\":1000,\"readBytesPerSecond\":2000.0,"));
+    }
+
+    //check that registered metrics can be read over JMX and are removed again
+    @Test
+    void testRegister() throws Exception {
+        RunMetrics metrics = new RunMetrics();
+        metrics.recordRead(42, 1);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        metrics.register();
+        ObjectName pattern = new ObjectName("assignment:type=RandomWriter,*");
+        ObjectName name = server.queryNames(pattern, null).stream()
+                .filter(found -> {
+                    try {
+                        return (long) server.getAttribute(found, "BytesRead") == 42;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                }).findFirst().orElseThrow();
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,110 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+public class SegmentedWriterTest {
+
+    //verify that the same seed gives byte-identical output for any amount of threads
+    @Test
+    void testThreadCountIndependent(@TempDir Path dir) throws IOException {
+        CompactFrequencyModel model = CompactFrequencyModel.build(CompactFrequencyModelTest.readBook("MuchAdo.txt"), 5)
+                .freeze();
+        SegmentedWriter writer = new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8,
+                7, 123);
+
+        byte[] expected = null;
+        for (int threads : new int[]{1, 2, 3, 8}) {
+            Path output = dir.resolve("output" + threads + ".txt");
+            assertEquals(100003, writer.write(output, 100003, threads));
+            byte[] actual = Files.readAllBytes(output);
+            if (expected == null) {
+                expected = actual;
+            } else {
+                assertArrayEquals(expected, actual);
+            }
+        }
+
+        //another seed gives other text
+        Path other = dir.resolve("other.txt");
+        new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8, 7, 124)
+                .write(other, 100003, 4);
+        assertFalse(new String(expected, StandardCharsets.UTF_8).equals(Files.readString(other)));
+    }
+
+    //check that segments are the chains of streams split in order from the master seed, concatenated in order
+    @Test
+    void testSegments(@TempDir Path dir) throws IOException {
+        CompactFrequencyModel model = CompactFrequencyModel.build("ab\u00e9ab\u00e9ba\u00e9", 1).freeze();
+        SegmentedWriter writer = new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8,
+                3, 9);
+        assertEquals(4, writer.segmentLength(10, 0));
+        assertEquals(3, writer.segmentLength(10, 2));
+
+        SplittableRandom master = new SplittableRandom(9);
+        StringBuilder expected = new StringBuilder();
+        for (int segment = 0; segment < 3; segment++) {
+            char[] text = new char[writer.segmentLength(10, segment)];
+            new TextGenerator(model, master.split()).fill(text, 0, text.length);
+            expected.append(text);
+        }
+
+        Path output = dir.resolve("output.txt");
+        writer.write(output, 10, 2);
+        assertEquals(expected.toString(), Files.readString(output));
+    }
+
+    //check that segments draw from the chosen algorithm, seeded from its master stream when it cannot split
+    @Test
+    void testRandomAlgorithm(@TempDir Path dir) throws IOException {
+        CompactFrequencyModel model = CompactFrequencyModel.build(CompactFrequencyModelTest.readBook("MuchAdo.txt"), 5)
+                .freeze();
+        RandomGeneratorFactory<RandomGenerator> factory = RandomGeneratorFactory.of("Random");
+        SegmentedWriter writer = new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8,
+                3, factory, 9);
+
+        RandomGenerator master = factory.create(9);
+        StringBuilder expected = new StringBuilder();
+        for (int segment = 0; segment < 3; segment++) {
+            char[] text = new char[writer.segmentLength(3000, segment)];
+            new TextGenerator(model, factory.create(master.nextLong())).fill(text, 0, text.length);
+            expected.append(text);
+        }
+
+        Path output = dir.resolve("output.txt");
+        writer.write(output, 3000, 2);
+        assertEquals(expected.toString(), Files.readString(output));
+
+        //the default SplittableRandom master gives other text
+        Path other = dir.resolve("other.txt");
+        new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8, 3, 9).write(other, 3000, 2);
+        assertNotEquals(expected.toString(), Files.readString(other));
+    }
+
+    //verify that a segment encoded chunk by chunk gives the bytes of its whole text, even with surrogate pairs
+    @Test
+    void testChunkedEncoding() {
+        CompactFrequencyModel model = CompactFrequencyModel.build("a\ud83d\ude00b\ud83d\ude00\ud83d\ude01ab", 1)
+                .freeze();
+        SegmentedWriter writer = new SegmentedWriter(rand -> new TextGenerator(model, rand), StandardCharsets.UTF_8,
+                1, 5);
+        int length = 3 * SegmentedWriter.CHUNK_SIZE + 7;
+
+        char[] text = new char[length];
+        new TextGenerator(model, new SplittableRandom(5)).fill(text, 0, length);
+        ByteBuffer expected = ByteBuffer.wrap(new String(text).getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected, writer.encode(new SplittableRandom(5), length));
+        assertEquals(0, writer.encode(new SplittableRandom(5), 0).remaining());
+    }
+}
@@ -0,0 +1,84 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class ShardedFrequencyModelTest {
+
+    //verify that the shards together hold exactly the counts of an unsharded model and every seed is in its own shard
+    @Test
+    void testShards() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        ShardedFrequencyModel model = ShardedFrequencyModel.build(source, 4, 3);
+
+        assertEquals(CompactFrequencyModelTest.referenceMap(source, 4), model.toFrequencyMap());
+        for (int shard = 0; shard < model.getShardCount(); shard++) {
+            FrequencyModel shardModel = model.getShard(shard);
+            assertTrue(shardModel.getSeedCount() > 0);
+            for (int seedId = 0; seedId < shardModel.getSeedCount(); seedId++) {
+                assertEquals(shard, ShardedFrequencyModel.shardOf(shardModel.getSeed(seedId), 0, 4, 3));
+            }
+        }
+        assertEquals(-1, model.getSeedId("zzzz"));
+
+        //the precomputed transitions lead to the same seeds as building the next seed's characters
+        for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+            for (int index = 0; index < model.getFollowerCount(seedId); index++) {
+                String next = model.getSeed(seedId).substring(1) + model.getFollower(seedId, index);
+                assertEquals(model.getSeedId(next), model.getTransition(seedId, index));
+            }
+        }
+    }
+
+    //check that shards built from a file, saved and mapped one by one make the same model, in shard order only
+    @Test
+    void testSaveAndLoad(@TempDir Path dir) throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        Path sourcePath = dir.resolve("source.txt");
+        Files.writeString(sourcePath, source);
+
+        Path[] paths = new Path[4];
+        for (int shard = 0; shard < paths.length; shard++) {
+            paths[shard] = dir.resolve("shard" + shard + ".model");
+            ModelFile.save(ShardedFrequencyModel.buildShard(sourcePath, StandardCharsets.UTF_8, 5, shard, 4),
+                    paths[shard]);
+        }
+        assertEquals(CompactFrequencyModelTest.referenceMap(source, 5),
+                ShardedFrequencyModel.load(paths).toFrequencyMap());
+
+        Path[] swapped = {paths[1], paths[0], paths[2], paths[3]};
+        assertThrows(IOException.class, () -> ShardedFrequencyModel.load(swapped));
+    }
+
+    //verify that a model whose shards are served over sockets holds the same counts and generates repeatably
+    @Test
+    void testRemoteShards() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        ShardedFrequencyModel local = ShardedFrequencyModel.build(source, 3, 2);
+
+        ShardServer first = new ShardServer(local.getShard(0), 0);
+        ShardServer second = new ShardServer(local.getShard(1), 0);
+        try (first; second;
+             RemoteShard firstRemote = new RemoteShard(first.getPort());
+             RemoteShard secondRemote = new RemoteShard(second.getPort())) {
+            ShardedFrequencyModel remote = new ShardedFrequencyModel(firstRemote, secondRemote);
+            assertEquals(local.toFrequencyMap(), remote.toFrequencyMap());
+            assertEquals(local.getSeedId("the"), remote.getSeedId("the"));
+
+            //draws are made by the server from a value drawn by the client, so the client's seed decides the text
+            char[] expected = new char[2000];
+            char[] actual = new char[2000];
+            new TextGenerator(remote, new SplittableRandom(5)).fill(expected, 0, expected.length);
+            new TextGenerator(remote, new SplittableRandom(5)).fill(actual, 0, actual.length);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StreamingTextWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    static void writeInPieces(Path path, String text, int pieceSize, boolean background) throws IOException {
+        try (StreamingTextWriter writer = new StreamingTextWriter(path, StandardCharsets.UTF_8, background)) {
+            char[] chars = text.toCharArray();
+            for (int i = 0; i < chars.length; i += pieceSize) {
+                writer.write(chars, i, Math.min(pieceSize, chars.length - i));
+            }
+        }
+    }
+
+    //verify that text written in odd pieces, with and without the writer thread, comes back unchanged
+    @Test
+    void testRoundTrip() throws IOException {
+        String text = "a\u00e9\u2713\ud83d\ude00 ".repeat(100000);
+        for (boolean background : new boolean[]{false, true}) {
+            for (int pieceSize : new int[]{1, 7, 8192, 1 << 20}) {
+                Path path = tempDir.resolve("out-" + background + "-" + pieceSize + ".txt");
+                writeInPieces(path, text, pieceSize, background);
+                assertEquals(text, Files.readString(path));
+            }
+        }
+    }
+
+    //verify that a streamed run of main writes exactly the requested amount of characters
+    @Test
+    void testStreamedMain() throws IOException {
+        Path path = tempDir.resolve("streamed.txt");
+        for (String mode : new String[]{"--stream", "--stream=background"}) {
+            String[] args = {"test_books/CatInTheHat.txt", path.toString(), "3", "50000", mode};
+            RandomWriter.main(args);
+            assertEquals(50000, Files.readString(path).length());
+        }
+    }
+
+    //verify that a streamed run with k = 0 or length = 0 behaves like the regular one
+    @Test
+    void testStreamedEdgeCases() throws IOException {
+        Path path = tempDir.resolve("edge.txt");
+        RandomWriter.main(new String[]{"test_books/CatInTheHat.txt", path.toString(), "0", "100", "--stream"});
+        assertEquals(100, Files.readString(path).length());
+
+        RandomWriter.main(new String[]{"test_books/CatInTheHat.txt", path.toString(), "3", "0", "--stream"});
+        assertEquals(0, Files.size(path));
+    }
+
+    //check that a close that fails, here because the caller is interrupted, still stops the writer thread
+    @Test
+    void testFailedCloseStopsWriter() throws Exception {
+        Set<Thread> before = writerThreads();
+        StreamingTextWriter writer = new StreamingTextWriter(tempDir.resolve("failed.txt"), StandardCharsets.UTF_8,
+                true);
+        writer.write("text".toCharArray(), 0, 4);
+        Set<Thread> started = writerThreads();
+        started.removeAll(before);
+        assertEquals(1, started.size());
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedIOException.class, writer::close);
+        Thread.interrupted();
+        for (Thread thread : started) {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    static Set<Thread> writerThreads() {
+        Set<Thread> threads = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("text-writer")) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+}
@@ -0,0 +1,100 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class SuffixArrayIndexTest {
+
+    //verify that the suffix array sorts every suffix, compared against a plain sort of the suffixes
+    @Test
+    void testSuffixOrder() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        int[] suffixArray = SuffixArrayIndex.buildSuffixArray(source.toCharArray());
+
+        Integer[] expected = new Integer[source.length()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        Arrays.sort(expected, (a, b) -> source.substring(a).compareTo(source.substring(b)));
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], suffixArray[i]);
+        }
+    }
+
+    //verify that models built from the index match the reference map for every k, without rebuilding the index
+    @Test
+    void testBuildModelAnyK() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        SuffixArrayIndex index = new SuffixArrayIndex(source);
+
+        for (int k = 0; k <= 8; k++) {
+            assertEquals(CompactFrequencyModelTest.referenceMap(source, k), index.buildModel(k).toFrequencyMap());
+        }
+    }
+
+    //verify that the view answers seed and follower queries like the compact model
+    @Test
+    void testViewQueries() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("OneFishTwoFish.txt");
+        SuffixArrayIndex index = new SuffixArrayIndex(source);
+
+        for (int k = 0; k <= 4; k++) {
+            FrequencyModel view = index.getModel(k);
+            CompactFrequencyModel model = CompactFrequencyModel.build(source, k);
+            assertEquals(model.getSeedCount(), view.getSeedCount());
+
+            for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+                int viewId = view.getSeedId(model.getSeed(seedId));
+                assertEquals(model.getSeed(seedId), view.getSeed(viewId));
+                assertEquals(model.getFollowerCount(seedId), view.getFollowerCount(viewId));
+                assertEquals(model.getTotalFrequency(seedId), view.getTotalFrequency(viewId));
+                for (int i = 0; i < model.getFollowerCount(seedId); i++) {
+                    assertEquals(model.getFollower(seedId, i), view.getFollower(viewId, i));
+                    assertEquals(model.getFrequency(seedId, i), view.getFrequency(viewId, i));
+                }
+            }
+        }
+    }
+
+    //verify that seeds only found at the end of the text are not part of the view
+    @Test
+    void testTrailingSeed() {
+        FrequencyModel view = new SuffixArrayIndex("broilbrokeoils").getModel(3);
+
+        assertEquals(-1, view.getSeedId("ils"));
+        assertEquals(-1, view.getSeedId("xyz"));
+        assertEquals(2, view.getFollowerCount(view.getSeedId("bro")));
+    }
+
+    //verify that generating straight from the view only emits characters that follow their seed
+    @Test
+    void testGenerateFromView() {
+        String source = "abcabdabcabdab";
+        FrequencyModel view = new SuffixArrayIndex(source).getModel(2);
+        String output = TextGeneratorTest.generate(view, 3, 300, 300);
+
+        for (int i = 0; i + 3 <= output.length(); i++) {
+            assertTrue(source.contains(output.substring(i, i + 3)));
+        }
+    }
+
+    //verify that the writer can switch levels through its index
+    @Test
+    void testSetLevel() throws IOException {
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(3);
+        randomWriter.readText("test_books/bro.txt");
+        randomWriter.createIndex();
+
+        randomWriter.setLevel(2);
+        assertEquals(2, randomWriter.getFrequencyModel().getK());
+        assertTrue(((CompactFrequencyModel) randomWriter.getFrequencyModel()).isFrozen());
+        randomWriter.setLevel(4);
+        assertEquals(CompactFrequencyModelTest.referenceMap(randomWriter.getContent(), 4), randomWriter.getFrequencyModel().toFrequencyMap());
+        assertThrows(IllegalArgumentException.class, () -> randomWriter.setLevel(100));
+    }
+}
@@ -0,0 +1,109 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.SplittableRandom;
+
+public class TextGeneratorTest {
+
+    static String generate(FrequencyModel model, long seed, int length, int pieceSize) {
+        TextGenerator generator = new TextGenerator(model, new SplittableRandom(seed));
+        char[] buffer = new char[length];
+        for (int i = 0; i < length; i += pieceSize) {
+            generator.fill(buffer, i, Math.min(pieceSize, length - i));
+        }
+        return new String(buffer);
+    }
+
+    //verify that the transition table of a frozen model agrees with building the next seed as a String
+    @Test
+    void testTransitionsMatchDefault() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        for (int k = 0; k <= 4; k++) {
+            CompactFrequencyModel model = CompactFrequencyModel.build(source, k);
+            CompactFrequencyModel frozen = model.freeze();
+            for (int seedId = 0; seedId < model.getSeedCount(); seedId++) {
+                for (int i = 0; i < model.getFollowerCount(seedId); i++) {
+                    assertEquals(model.getTransition(seedId, i), frozen.getTransition(seedId, i));
+                }
+            }
+        }
+    }
+
+    //verify that frozen and unfrozen models produce identical text from the same random seed
+    @Test
+    void testFrozenMatchesUnfrozen() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("OneFishTwoFish.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 3);
+
+        assertEquals(generate(model, 42, 2000, 2000), generate(model.freeze(), 42, 2000, 2000));
+    }
+
+    //verify that generating in small pieces continues the same text as generating it at once
+    @Test
+    void testPiecesContinueText() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("CatInTheHat.txt");
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 5).freeze();
+
+        assertEquals(generate(model, 7, 1000, 1000), generate(model, 7, 1000, 3));
+    }
+
+    //verify that when no seed is a dead end, every k + 1 characters of the output appear in the source
+    @Test
+    void testOutputFollowsSource() {
+        String source = "abcabdabcabdab";
+        CompactFrequencyModel model = CompactFrequencyModel.build(source, 2).freeze();
+        String output = generate(model, 1, 500, 500);
+
+        assertEquals(500, output.length());
+        for (int i = 0; i + 3 <= output.length(); i++) {
+            assertTrue(source.contains(output.substring(i, i + 3)));
+        }
+    }
+
+    //check exception if generating from a model without seeds
+    @Test
+    void testEmptyModel() {
+        CompactFrequencyModel model = CompactFrequencyModel.build("ab", 3).freeze();
+
+        assertThrows(IllegalStateException.class, () -> generate(model, 1, 10, 10));
+    }
+
+    //verify that many threads can generate from one shared model at once, each through its own generator
+    @Test
+    void testConcurrentGenerators() throws Exception {
+        String source = "abcabdabcabdab";
+        RandomWriter randomWriter = (RandomWriter) RandomWriter.createProcessor(2);
+        randomWriter.createFrequency(source, 2);
+        randomWriter.freezeModel();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                TextGenerator generator = randomWriter.newGenerator();
+                results.add(executor.submit(() -> {
+                    char[] buffer = new char[20000];
+                    generator.fill(buffer, 0, buffer.length);
+                    return new String(buffer);
+                }));
+            }
+            for (Future<String> result : results) {
+                String output = result.get();
+                for (int i = 0; i + 3 <= output.length(); i++) {
+                    assertTrue(source.contains(output.substring(i, i + 3)));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+public class TokenGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    //check that the word tokenizer keeps whitespace inside tokens, so tokens concatenate back into the text
+    @Test
+    void testTokenizer() {
+        List<String> tokens = new ArrayList<>();
+        Tokenizer.WORDS.tokenize("  the cat\nsat. ", tokens::add);
+        assertEquals(List.of("  ", "the ", "cat\n", "sat. "), tokens);
+
+        tokens.clear();
+        Tokenizer.WORDS_AND_PUNCTUATION.tokenize("sat, on it.", tokens::add);
+        assertEquals(List.of("sat", ", ", "on ", "it", "."), tokens);
+    }
+
+    //verify that tokens get dense ids in order of first appearance and survive saving
+    @Test
+    void testDictionary() throws IOException {
+        TokenDictionary dictionary = new TokenDictionary();
+        char[] ids = dictionary.encode("the cat the hat the cat", Tokenizer.WORDS);
+
+        assertArrayEquals(new char[]{0, 1, 0, 2, 0, 3}, ids);
+        assertEquals("cat", dictionary.getToken(3));
+        assertEquals(-1, dictionary.getId("dog "));
+
+        Path path = tempDir.resolve("model.tokens");
+        dictionary.save(path);
+        TokenDictionary loaded = TokenDictionary.load(path);
+        assertEquals(dictionary.size(), loaded.size());
+        for (int id = 0; id < dictionary.size(); id++) {
+            assertEquals(dictionary.getToken(id), loaded.getToken(id));
+        }
+    }
+
+    //verify that a vocabulary past 65536 tokens writes the later ids as surrogate pairs and generates whole tokens
+    @Test
+    void testLargeVocabulary() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            source.append('w').append(i).append(' ');
+        }
+        TokenDictionary dictionary = new TokenDictionary();
+        String ids = String.valueOf(dictionary.encode(source.toString() + source, Tokenizer.WORDS));
+
+        assertEquals(70000, dictionary.size());
+        assertEquals(2 * (63488 + 2 * (70000 - 63488)), ids.length());
+        assertEquals(70000 * 2, ids.codePointCount(0, ids.length()));
+        assertEquals("w69999 ", dictionary.getToken(TokenDictionary.toId(ids.codePointBefore(ids.length()))));
+        assertEquals(0xD7FF, TokenDictionary.toId(TokenDictionary.toCodePoint(0xD7FF)));
+        assertEquals(0xE000, TokenDictionary.toCodePoint(0xD800));
+
+        //every generated word is a whole token, also after jumps to random seeds that cut a pair
+        CompactFrequencyModel model = CompactFrequencyModel.build(ids, 1).freeze();
+        char[] buffer = new char[20000];
+        new TokenGenerator(model, dictionary, new SplittableRandom(3)).fill(buffer, 0, buffer.length);
+        List<String> generated = new ArrayList<>();
+        Tokenizer.WORDS.tokenize(new String(buffer), generated::add);
+        for (int i = 0; i < generated.size() - 1; i++) {
+            assertTrue(dictionary.getId(generated.get(i)) != -1, generated.get(i));
+        }
+    }
+
+    //verify that generated text is made only of whole source tokens that follow each other in the source
+    @Test
+    void testGeneratesTokens() throws IOException {
+        String source = CompactFrequencyModelTest.readBook("MuchAdo.txt");
+        TokenDictionary dictionary = new TokenDictionary();
+        CompactFrequencyModel model = CompactFrequencyModel.build(String.valueOf(dictionary.encode(source,
+                Tokenizer.WORDS)), 2).freeze();
+
+        char[] buffer = new char[20000];
+        TokenGenerator generator = new TokenGenerator(model, dictionary, new SplittableRandom(1));
+        for (int i = 0; i < buffer.length; i += 777) {
+            generator.fill(buffer, i, Math.min(777, buffer.length - i));
+        }
+
+        //every pair of consecutive generated words appears in the source, apart from the cut-off last token
+        Set<String> pairs = new HashSet<>();
+        List<String> sourceTokens = new ArrayList<>();
+        Tokenizer.WORDS.tokenize(source, sourceTokens::add);
+        for (int i = 1; i < sourceTokens.size(); i++) {
+            pairs.add(sourceTokens.get(i - 1) + sourceTokens.get(i));
+        }
+        List<String> generated = new ArrayList<>();
+        Tokenizer.WORDS.tokenize(new String(buffer), generated::add);
+        for (int i = 1; i < generated.size() - 1; i++) {
+            assertTrue(dictionary.getId(generated.get(i)) != -1);
+        }
+        int known = 0;
+        for (int i = 1; i < generated.size() - 1; i++) {
+            known += pairs.contains(generated.get(i - 1) + generated.get(i)) ? 1 : 0;
+        }
+        assertTrue(known >= 0.95 * (generated.size() - 2));
+    }
+
+    //verify that main writes a token model with its dictionary and reuses both on the next run
+    @Test
+    void testTokenMode() throws IOException {
+        String output = tempDir.resolve("output.txt").toString();
+        String model = tempDir.resolve("model.bin").toString();
+        String[] args = {"test_books/CatInTheHat.txt", output, "2", "300", "--tokens", "--model=" + model};
+
+        RandomWriter.main(args);
+        assertEquals(300, Files.readString(Path.of(output)).length());
+        assertTrue(Files.exists(Path.of(model + RandomWriter.TOKENS_SUFFIX)));
+
+        RandomWriter.main(args);
+        assertEquals(300, Files.readString(Path.of(output)).length());
+    }
+
+    //check exception if k is not smaller than the amount of tokens of the source
+    @Test
+    void testTooFewTokens() throws IOException {
+        Path source = tempDir.resolve("source.txt");
+        Files.writeString(source, "one two three");
+        String[] args = {source.toString(), tempDir.resolve("output.txt").toString(), "3", "10", "--tokens"};
+
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+    }
+
+    //check exception if the tokens option names no tokenizer
+    @Test
+    void testInvalidTokenizer() {
+        String[] args = {"test_books/CatInTheHat.txt", "output.txt", "2", "10", "--tokens=sentences"};
+
+        assertThrows(IllegalArgumentException.class, () -> RandomWriter.main(args));
+    }
+}